@@ -0,0 +1,298 @@
+package com.MaddyJace.util;
+
+import com.MaddyJace.util.Stubs.Answer;
+import fr.xephi.authme.api.v3.AuthMePlayer;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.MaddyJace.util.Stubs.answers;
+import static com.MaddyJace.util.Stubs.stub;
+
+/**
+ * 基准测试使用的离线桩实现。
+ * <p>
+ * {@link Server}、{@link Player}、{@link PlayerInventory} 等接口通过 {@link Stubs} 实现，
+ * 未列出的方法返回默认值；一次性异步任务在调用线程上立即执行。
+ * AuthMe 通过 {@link AuthMe#setSource(AuthMeSource)} 替换，
+ * 嵌套占位符通过 {@link Template#setResolver} 交给同一个扩展实例解析。
+ * </p>
+ * <p>
+ * {@link LoadSimulator} 另外使用这里的多玩家、定时任务与主线程模拟：
+ * 定时任务只在 {@link #tick()} 时执行，基准测试不调用它，行为与之前相同。
+ * </p>
+ */
+final class BenchmarkStubs {
+
+    static final ExpansionUtil EXPANSION = new ExpansionUtil();
+
+    static final Player PLAYER = player("Steve", UUID.fromString("6f1f3b5e-6c1a-4f4e-9a55-3c2b1d0e9f11"), "127.0.0.1", "world");
+
+    private static final Logger LOGGER = Logger.getLogger("benchmark");
+    private static final Server SERVER;
+    /** 代替 PlaceholderAPI 的宿主插件 */
+    static final Plugin HOST;
+
+    private static volatile Collection<Player> online = Collections.singletonList(PLAYER);
+    private static volatile Map<String, Player> byName = Collections.singletonMap("steve", PLAYER);
+    private static volatile Set<String> plugins = Collections.emptySet();
+    private static volatile File dataFolder = new File(System.getProperty("java.io.tmpdir"));
+    /** 模拟的主线程，为 {@code null} 时所有线程都视为主线程 */
+    private static volatile Thread mainThread;
+    /** 嵌套占位符交给哪个扩展实例解析 */
+    private static volatile ExpansionUtil resolving = EXPANSION;
+
+    private static final List<Timer> TIMERS = new CopyOnWriteArrayList<>();
+    private static final ExecutorService ASYNC = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "stub-async");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final LongAdder TASK_FAILURES = new LongAdder();
+    private static long currentTick;
+
+    static {
+        HOST = stub(Plugin.class, answers(
+                "getLogger", (Answer) args -> LOGGER,
+                "getDataFolder", (Answer) args -> dataFolder,
+                "isEnabled", (Answer) args -> true,
+                "getName", (Answer) args -> "PlaceholderAPI"));
+        BukkitScheduler scheduler = stub(BukkitScheduler.class, answers(
+                "runTaskAsynchronously", (Answer) args -> {
+                    ((Runnable) args[1]).run();
+                    return null;
+                },
+                "runTask", (Answer) args -> schedule((Runnable) args[1], 0, 0, false),
+                "runTaskLater", (Answer) args -> schedule((Runnable) args[1], (Long) args[2], 0, false),
+                "runTaskTimer", (Answer) args -> schedule((Runnable) args[1], (Long) args[2], (Long) args[3], false),
+                "runTaskTimerAsynchronously", (Answer) args -> schedule((Runnable) args[1], (Long) args[2], (Long) args[3], true)));
+        PluginManager pluginManager = stub(PluginManager.class, answers(
+                "getPlugin", (Answer) args -> plugins.contains((String) args[0]) ? HOST : null,
+                "isPluginEnabled", (Answer) args -> plugins.contains((String) args[0])));
+        // ItemStack#hasItemMeta() 通过 ItemFactory#equals(meta, null) 判断，桩物品都没有元数据
+        ItemFactory itemFactory = stub(ItemFactory.class, answers(
+                "equals", (Answer) args -> args[0] == args[1]));
+        SERVER = stub(Server.class, answers(
+                "getLogger", (Answer) args -> LOGGER,
+                "getName", (Answer) args -> "benchmark",
+                "getVersion", (Answer) args -> "benchmark",
+                "getBukkitVersion", (Answer) args -> "benchmark",
+                "getOnlinePlayers", (Answer) args -> online,
+                "getPlayer", (Answer) args -> args[0] instanceof String ? byName.get(((String) args[0]).toLowerCase(Locale.ROOT)) : null,
+                "getPlayerExact", (Answer) args -> byName.get(((String) args[0]).toLowerCase(Locale.ROOT)),
+                "isPrimaryThread", (Answer) args -> mainThread == null || Thread.currentThread() == mainThread,
+                "getScheduler", (Answer) args -> scheduler,
+                "getItemFactory", (Answer) args -> itemFactory,
+                "getPluginManager", (Answer) args -> pluginManager));
+    }
+
+    private BenchmarkStubs() {}
+
+    /**
+     * 创建一名玩家：主手持钻石剑，主背包奇数格各有 32 个石头。
+     *
+     * @param name  玩家名称
+     * @param uuid  玩家 UUID
+     * @param ip    玩家 IP
+     * @param world 所在世界名称
+     * @return 玩家桩实现
+     */
+    static Player player(String name, UUID uuid, String ip, String world) {
+        ItemStack[] contents = new ItemStack[InventorySummary.STORAGE_SLOTS];
+        contents[0] = new ItemStack(Material.DIAMOND_SWORD, 1);
+        for (int slot = 1; slot < contents.length; slot += 2) {
+            contents[slot] = new ItemStack(Material.STONE, 32);
+        }
+
+        PlayerInventory inventory = stub(PlayerInventory.class, answers(
+                "getStorageContents", (Answer) args -> contents.clone(),
+                "getItem", (Answer) args -> contents[(Integer) args[0]],
+                "getItemInMainHand", (Answer) args -> contents[0],
+                "getHeldItemSlot", (Answer) args -> 0));
+        World stubWorld = stub(World.class, answers("getName", (Answer) args -> world));
+        InetSocketAddress address = new InetSocketAddress(ip, 25565);
+        return stub(Player.class, answers(
+                "getName", (Answer) args -> name,
+                "getUniqueId", (Answer) args -> uuid,
+                "getInventory", (Answer) args -> inventory,
+                "getWorld", (Answer) args -> stubWorld,
+                "getAddress", (Answer) args -> address,
+                "isOnline", (Answer) args -> true,
+                "hasPermission", (Answer) args -> true));
+    }
+
+    /**
+     * 创建 AuthMe 玩家信息。
+     *
+     * @param name         玩家名称
+     * @param registeredAt 注册时间
+     * @return 玩家信息桩实现
+     */
+    static AuthMePlayer authMePlayer(String name, Instant registeredAt) {
+        return stub(AuthMePlayer.class, answers(
+                "getName", (Answer) args -> name,
+                "getRegistrationDate", (Answer) args -> registeredAt));
+    }
+
+    /** 替换在线玩家列表 */
+    static void setOnline(List<Player> players) {
+        Map<String, Player> names = new HashMap<>();
+        for (Player player : players) {
+            names.put(player.getName().toLowerCase(Locale.ROOT), player);
+        }
+        byName = names;
+        online = Collections.unmodifiableList(players);
+    }
+
+    /** 设置视为已安装的插件，{@code getPlugin} 对这些名称返回 {@link #HOST} */
+    static void setPlugins(String... names) {
+        plugins = new HashSet<>(Arrays.asList(names));
+    }
+
+    /** 设置 {@link #HOST} 的数据目录 */
+    static void setDataFolder(File folder) {
+        dataFolder = folder;
+    }
+
+    /** 设置模拟的主线程，{@code Bukkit.isPrimaryThread()} 只对该线程返回 true */
+    static void setMainThread(Thread thread) {
+        mainThread = thread;
+    }
+
+    /** 设置嵌套占位符交给哪个扩展实例解析 */
+    static void setExpansion(ExpansionUtil expansion) {
+        resolving = expansion;
+    }
+
+    /** 推进一个 tick：同步定时任务在调用线程上执行，异步定时任务交给线程池；任务抛出的异常只记录，见 {@link #taskFailures()} */
+    static void tick() {
+        long now = ++currentTick;
+        for (Timer timer : TIMERS) {
+            if (timer.cancelled) {
+                TIMERS.remove(timer);
+                continue;
+            }
+            if (now < timer.next) continue;
+            if (timer.period > 0) {
+                timer.next = now + timer.period;
+            } else {
+                TIMERS.remove(timer);
+            }
+            if (timer.async) {
+                ASYNC.execute(() -> run(timer.task));
+            } else {
+                run(timer.task);
+            }
+        }
+    }
+
+    /** 与服务端调度器相同：任务抛出的异常记录到日志，不影响其它任务与后续 tick */
+    private static void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException | Error e) {
+            TASK_FAILURES.increment();
+            LOGGER.log(Level.WARNING, "Scheduled task threw", e);
+        }
+    }
+
+    /** @return 定时任务抛出异常的次数 */
+    static long taskFailures() {
+        return TASK_FAILURES.sum();
+    }
+
+    private static BukkitTask schedule(Runnable task, long delay, long period, boolean async) {
+        Timer timer = new Timer(task, currentTick + Math.max(1, delay), period, async);
+        TIMERS.add(timer);
+        return stub(BukkitTask.class, answers(
+                "cancel", (Answer) args -> {
+                    timer.cancelled = true;
+                    return null;
+                },
+                "isCancelled", (Answer) args -> timer.cancelled,
+                "isSync", (Answer) args -> !async,
+                "getOwner", (Answer) args -> HOST));
+    }
+
+    private static final class Timer {
+        private final Runnable task;
+        private final long period;
+        private final boolean async;
+        private long next;
+        private volatile boolean cancelled;
+
+        private Timer(Runnable task, long next, long period, boolean async) {
+            this.task = task;
+            this.next = next;
+            this.period = period;
+            this.async = async;
+        }
+    }
+
+    /** 安装桩实现，可以重复调用 */
+    static synchronized void install() {
+        if (Bukkit.getServer() == null) Bukkit.setServer(SERVER);
+
+        AuthMePlayer authMePlayer = authMePlayer("Steve", Instant.now().minus(Duration.ofDays(30)));
+        List<String> names = Arrays.asList("Steve", "Alex", "Notch");
+        AuthMe.setSource(new AuthMeSource() {
+            @Override
+            public Optional<AuthMePlayer> playerInfo(String name) {
+                return Optional.of(authMePlayer);
+            }
+
+            @Override
+            public List<String> namesByIp(String ip) {
+                return names;
+            }
+
+            @Override
+            public List<String> registeredNames() {
+                return names;
+            }
+        });
+
+        Template.setResolver(BenchmarkStubs::resolve);
+    }
+
+    /** 解析 {@code %mut_...%}，以及固定返回值的 LuckPerms 过期时间占位符 */
+    static String resolve(Player player, String text) {
+        if (text.length() < 2 || text.charAt(0) != '%' || text.charAt(text.length() - 1) != '%') return text;
+        String inner = text.substring(1, text.length() - 1);
+        if (inner.startsWith("mut_")) return resolving.onPlaceholderRequest(player, inner.substring(4));
+        if (inner.startsWith("luckperms_")) return "1w 2d 3h 4m";
+        return text;
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.MaddyJace.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ExpansionUtil#onPlaceholderRequest} 的完整分发路径，覆盖每一类 {@code %mut_*%} 占位符。
+ * <p>{@code request} 为命中计划缓存后的常规请求，{@code compile} 为首次请求时的编译开销。</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    @Param({
+            "diffDays.second.\"23:59:59\".false",
+            "diffWeeks.minute.\"12:00:00\".5",
+            "diffMonths.hour.\"00:00:00\".15",
+            "getTheWeek",
+            "authMe.registered",
+            "authMe.registrationDate.\"yyyy-MM-dd HH:mm:ss\"",
+            "authMe.registrationDiffDate.day",
+            "authMe.listNameByIp.\",\"",
+            "authMe.getUserCountByIp",
+            "bukkit.emptySlots",
+            "bukkit.count.STONE",
+            "bukkit.freeCapacity.STONE",
+            "bukkit.playerOnline.Steve",
+            "bukkit.onlineCount",
+            "bukkit.itemInHand",
+            "bukkit.itemInHandName",
+            "bukkit.itemInHandCustomName",
+            "bukkit.itemInHandAmount",
+            "bukkit.itemInHandEnchanted",
+            "bukkit.itemInHandDurability",
+            "luckPermsExpiryTime.\"{luckperms_expiry_time_vip}\"",
+            "luckPermsExpiryTime.\"{luckperms_expiry_time_vip}\".hour"
+    })
+    public String identifier;
+
+    @Setup
+    public void setup() {
+        BenchmarkStubs.install();
+    }
+
+    @Benchmark
+    public String request() {
+        return BenchmarkStubs.EXPANSION.onPlaceholderRequest(BenchmarkStubs.PLAYER, identifier);
+    }
+
+    @Benchmark
+    public PlaceholderPlan compile() {
+        return BenchmarkStubs.EXPANSION.compile(identifier);
+    }
+
+}
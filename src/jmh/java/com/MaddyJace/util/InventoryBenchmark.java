@@ -0,0 +1,61 @@
+package com.MaddyJace.util;
+
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 背包统计与主手物品快照：直接统计与经过 {@link InventoryTracker} 缓存两种路径。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryBenchmark {
+
+    private InventoryTracker tracker;
+
+    @Setup
+    public void setup() {
+        BenchmarkStubs.install();
+        tracker = new InventoryTracker(20, false);
+    }
+
+    @Benchmark
+    public int emptySlotsDirect() {
+        return InventorySummary.of(BenchmarkStubs.PLAYER.getInventory()).emptySlots();
+    }
+
+    @Benchmark
+    public int emptySlotsTracked() {
+        return tracker.summary(BenchmarkStubs.PLAYER).emptySlots();
+    }
+
+    @Benchmark
+    public int countTracked() {
+        return tracker.summary(BenchmarkStubs.PLAYER).count(Material.STONE);
+    }
+
+    @Benchmark
+    public HandItemSnapshot handDirect() {
+        return HandItemSnapshot.of(BenchmarkStubs.PLAYER.getInventory().getItemInMainHand());
+    }
+
+    @Benchmark
+    public HandItemSnapshot handTracked() {
+        return tracker.hand(BenchmarkStubs.PLAYER);
+    }
+
+}
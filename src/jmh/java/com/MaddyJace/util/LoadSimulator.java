@@ -0,0 +1,527 @@
+package com.MaddyJace.util;
+
+import fr.xephi.authme.api.v3.AuthMePlayer;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 无头负载模拟器：在没有服务器的环境中按线上的请求模式驱动扩展，测量每个 tick 的开销。
+ * <p>
+ * 模拟 {@code players} 名在线玩家，每人的计分板有 {@code lines} 行，每行一个 {@code %mut_*%} 占位符，
+ * 以 {@code refresh-hz} 的频率在主线程上刷新（各玩家错开 tick）；聊天消息在 {@code chat-threads}
+ * 个异步线程上以每秒 {@code chat-rate} 条的速度解析。AuthMe 的每次查询有 {@code authme-latency-millis}
+ * 的人为延迟。所有请求都经过 {@link ExpansionUtil#onPlaceholderRequest}，
+ * 扩展通过 {@link ExpansionUtil#start()} 完整启动，缓存、跟踪器与熔断器的行为与线上一致。
+ * </p>
+ * <p>
+ * 结束后输出主线程每个 tick 的耗时与内存分配量、主线程与异步线程上单次请求的尾延迟，以及 AuthMe 查询次数。
+ * 分配量包含桩实现自身的分配（{@link java.lang.reflect.Proxy} 的参数数组等），适合比较不同版本，不代表线上的绝对值。
+ * 设置 {@code max-tick-p99-millis} 或 {@code max-alloc-per-tick-kb} 后，超出时以状态码 1 退出，
+ * 使随玩家数量增长的退化在发布前暴露。请求抛出的异常不会中断模拟，结束时输出次数与第一个异常，并同样以状态码 1 退出。
+ * </p>
+ * <p>参数以 {@code key=value} 形式传入；{@code config.} 开头的参数覆盖扩展配置，例如 {@code config.metrics.enabled=true}。</p>
+ */
+public final class LoadSimulator {
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /** 计分板各行使用的占位符，行数超过列表长度时循环使用 */
+    private static final String[] SCOREBOARD = {
+            "authMe.registrationDate.\"yyyy-MM-dd\"",
+            "authMe.registrationDiffDate.day",
+            "authMe.registered",
+            "authMe.getUserCountByIp",
+            "bukkit.emptySlots",
+            "bukkit.count.STONE",
+            "bukkit.freeCapacity.DIAMOND",
+            "bukkit.itemInHand",
+            "authMe.registrationRank",
+            "bukkit.onlineCount",
+            "bukkit.onlineCountWorld.world",
+            "diffDays.second.\"00:00:00\".true",
+            "diffWeeks.hour.\"12:00:00\".5",
+            "authMe.registeredSince.day.7",
+            "luckPermsExpiryTime.\"{luckperms_expiry_time_vip}\".hour"
+    };
+
+    /** 每条聊天消息的前缀中使用的占位符 */
+    private static final String[] CHAT = {
+            "authMe.listNameByIp.\",\"",
+            "bukkit.itemInHandName",
+            "bukkit.playerOnline.Player0"
+    };
+
+    private LoadSimulator() {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int playerCount = intOption(options, "players", 300);
+        int lines = intOption(options, "lines", 15);
+        int refreshHz = intOption(options, "refresh-hz", 4);
+        int chatRate = intOption(options, "chat-rate", 20);
+        int chatThreads = intOption(options, "chat-threads", 4);
+        int playersPerIp = intOption(options, "players-per-ip", 2);
+        long latencyMillis = intOption(options, "authme-latency-millis", 20);
+        int ticks = intOption(options, "ticks", 1200);
+        int warmupTicks = intOption(options, "warmup-ticks", 200);
+        double maxTickP99 = Double.parseDouble(options.getOrDefault("max-tick-p99-millis", "0"));
+        double maxAllocKb = Double.parseDouble(options.getOrDefault("max-alloc-per-tick-kb", "0"));
+
+        File dataFolder = Files.createTempDirectory("mut-simulation").toFile();
+        BenchmarkStubs.install();
+        BenchmarkStubs.setPlugins("AuthMe");
+        BenchmarkStubs.setDataFolder(dataFolder);
+        List<Player> players = createPlayers(playerCount, playersPerIp);
+        BenchmarkStubs.setOnline(players);
+        BenchmarkStubs.setMainThread(Thread.currentThread());
+
+        SimulatedExpansion expansion = new SimulatedExpansion(configOverrides(options));
+        BenchmarkStubs.setExpansion(expansion);
+        expansion.canRegister();
+        SlowAuthMe database = new SlowAuthMe(latencyMillis, players, playersPerIp);
+        AuthMe.setSource(database);
+        expansion.start();
+
+        Histogram mainCalls = new Histogram();
+        Histogram asyncCalls = new Histogram();
+        Failures mainFailures = new Failures();
+        Failures asyncFailures = new Failures();
+        Chat chat = new Chat(expansion, players, asyncCalls, asyncFailures);
+        ScheduledExecutorService chatPool = chat.start(chatThreads, chatRate);
+
+        long[] tickNanos = new long[ticks];
+        long[] tickBytes = new long[ticks];
+        AllocationMeter meter = new AllocationMeter();
+        int period = Math.max(1, 20 / Math.max(1, refreshHz));
+        long queriesBefore = 0;
+        long next = System.nanoTime();
+        for (int tick = -warmupTicks; tick < ticks; tick++) {
+            boolean measured = tick >= 0;
+            if (tick == 0) {
+                chat.measuring = true;
+                queriesBefore = database.queries.sum();
+            }
+            long bytesBefore = meter.allocated();
+            long start = System.nanoTime();
+
+            BenchmarkStubs.tick();
+            for (int i = 0; i < players.size(); i++) {
+                if (Math.floorMod(i + tick, period) != 0) continue;
+                Player player = players.get(i);
+                for (int line = 0; line < lines; line++) {
+                    String identifier = SCOREBOARD[line % SCOREBOARD.length];
+                    long callStart = System.nanoTime();
+                    try {
+                        expansion.onPlaceholderRequest(player, identifier);
+                    } catch (RuntimeException | Error e) {
+                        mainFailures.record(identifier, e);
+                        continue;
+                    }
+                    if (measured) mainCalls.record(System.nanoTime() - callStart);
+                }
+            }
+
+            if (measured) {
+                tickNanos[tick] = System.nanoTime() - start;
+                tickBytes[tick] = meter.allocated() - bytesBefore;
+            }
+            next += TICK_NANOS;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else {
+                // 主线程落后时不追赶，和服务端跳过 tick 的行为一致
+                next = System.nanoTime();
+            }
+        }
+        long queries = database.queries.sum() - queriesBefore;
+
+        chatPool.shutdownNow();
+        chatPool.awaitTermination(5, TimeUnit.SECONDS);
+        expansion.stop();
+        File[] files = dataFolder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dataFolder.delete();
+
+        Arrays.sort(tickNanos);
+        Arrays.sort(tickBytes);
+        double seconds = ticks / 20.0;
+        System.out.println();
+        System.out.println("== mut load simulation ==");
+        System.out.printf(Locale.ROOT, "players=%d lines=%d refresh=%dHz chat=%d/s on %d threads authme-latency=%dms ticks=%d (+%d warm-up)%n",
+                playerCount, lines, refreshHz, chatRate, chatThreads, latencyMillis, ticks, warmupTicks);
+        System.out.printf(Locale.ROOT, "tick time (ms)          mean=%.3f p50=%.3f p99=%.3f p99.9=%.3f max=%.3f%n",
+                mean(tickNanos) / 1e6, percentile(tickNanos, 0.50) / 1e6, percentile(tickNanos, 0.99) / 1e6,
+                percentile(tickNanos, 0.999) / 1e6, tickNanos[ticks - 1] / 1e6);
+        System.out.printf(Locale.ROOT, "alloc per tick (KB)     mean=%.1f p50=%.1f p99=%.1f max=%.1f%s%n",
+                mean(tickBytes) / 1024, percentile(tickBytes, 0.50) / 1024.0, percentile(tickBytes, 0.99) / 1024.0,
+                tickBytes[ticks - 1] / 1024.0, meter.isSupported() ? "" : " (not supported by this JVM)");
+        System.out.printf(Locale.ROOT, "main requests (us)      calls=%d p50=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                mainCalls.count(), mainCalls.percentile(0.50) / 1e3, mainCalls.percentile(0.99) / 1e3,
+                mainCalls.percentile(0.999) / 1e3, mainCalls.max() / 1e3);
+        System.out.printf(Locale.ROOT, "async requests (us)     calls=%d p50=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                asyncCalls.count(), asyncCalls.percentile(0.50) / 1e3, asyncCalls.percentile(0.99) / 1e3,
+                asyncCalls.percentile(0.999) / 1e3, asyncCalls.max() / 1e3);
+        System.out.printf(Locale.ROOT, "authme queries          total=%d per-second=%.1f%n", queries, queries / seconds);
+        long taskFailures = BenchmarkStubs.taskFailures();
+        System.out.printf(Locale.ROOT, "failures                main=%d async=%d scheduled-tasks=%d%n",
+                mainFailures.count(), asyncFailures.count(), taskFailures);
+
+        boolean failed = mainFailures.report("main") | asyncFailures.report("async");
+        if (taskFailures > 0) {
+            System.out.printf(Locale.ROOT, "FAILED: %d scheduled task run(s) threw, see the log above%n", taskFailures);
+            failed = true;
+        }
+        double tickP99 = percentile(tickNanos, 0.99) / 1e6;
+        if (maxTickP99 > 0 && tickP99 > maxTickP99) {
+            System.out.printf(Locale.ROOT, "FAILED: tick p99 %.3f ms exceeds max-tick-p99-millis=%.3f%n", tickP99, maxTickP99);
+            failed = true;
+        }
+        double allocP99 = percentile(tickBytes, 0.99) / 1024.0;
+        if (maxAllocKb > 0 && meter.isSupported() && allocP99 > maxAllocKb) {
+            System.out.printf(Locale.ROOT, "FAILED: alloc p99 %.1f KB exceeds max-alloc-per-tick-kb=%.1f%n", allocP99, maxAllocKb);
+            failed = true;
+        }
+        System.exit(failed ? 1 : 0);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private static int intOption(Map<String, String> options, String key, int def) {
+        String value = options.get(key);
+        return value == null ? def : Integer.parseInt(value);
+    }
+
+    /** {@code config.} 开头的参数，按 true/false、整数、字符串转换 */
+    private static Map<String, Object> configOverrides(Map<String, String> options) {
+        Map<String, Object> overrides = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : options.entrySet()) {
+            if (!entry.getKey().startsWith("config.")) continue;
+            String value = entry.getValue();
+            Object parsed;
+            if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) {
+                parsed = Boolean.parseBoolean(value);
+            } else {
+                try {
+                    parsed = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    parsed = value;
+                }
+            }
+            overrides.put(entry.getKey().substring("config.".length()), parsed);
+        }
+        return overrides;
+    }
+
+    /** 玩家名为 Player0、Player1…，每 {@code playersPerIp} 名玩家共用一个 IP，每 3 名中有 1 名在下界 */
+    private static List<Player> createPlayers(int count, int playersPerIp) {
+        List<Player> players = new ArrayList<>(count);
+        int perIp = Math.max(1, playersPerIp);
+        for (int i = 0; i < count; i++) {
+            int ip = i / perIp;
+            String address = "10." + (ip >> 16 & 0xff) + "." + (ip >> 8 & 0xff) + "." + (ip & 0xff);
+            String name = "Player" + i;
+            players.add(BenchmarkStubs.player(name, UUID.nameUUIDFromBytes(name.getBytes()), address,
+                    i % 3 == 0 ? "world_nether" : "world"));
+        }
+        return players;
+    }
+
+    private static double mean(long[] values) {
+        if (values.length == 0) return 0;
+        double sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(sorted.length * quantile) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /** 不依赖 PlaceholderAPI 的扩展实例：宿主插件与配置都在内存中 */
+    private static final class SimulatedExpansion extends ExpansionUtil {
+
+        private final ConfigurationSection settings;
+
+        private SimulatedExpansion(Map<String, Object> overrides) {
+            MemoryConfiguration config = new MemoryConfiguration();
+            getDefaults().forEach(config::set);
+            overrides.forEach(config::set);
+            this.settings = config;
+        }
+
+        @Override
+        Plugin host() {
+            return BenchmarkStubs.HOST;
+        }
+
+        @Override
+        ConfigurationSection settings() {
+            return settings;
+        }
+
+        @Override
+        public void info(String msg) {
+            System.out.println("[mut] " + msg);
+        }
+
+        @Override
+        public void warning(String msg) {
+            System.out.println("[mut] WARN " + msg);
+        }
+    }
+
+    /** 每次查询都等待固定延迟的 AuthMe，所有玩家都已注册 */
+    private static final class SlowAuthMe implements AuthMeSource {
+
+        private final long latencyMillis;
+        private final Map<String, AuthMePlayer> players = new HashMap<>();
+        private final Map<String, List<String>> namesByIp = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final LongAdder queries = new LongAdder();
+
+        private SlowAuthMe(long latencyMillis, List<Player> online, int playersPerIp) {
+            this.latencyMillis = latencyMillis;
+            Instant now = Instant.now();
+            for (int i = 0; i < online.size(); i++) {
+                Player player = online.get(i);
+                players.put(player.getName().toLowerCase(Locale.ROOT),
+                        BenchmarkStubs.authMePlayer(player.getName(), now.minus(Duration.ofDays(1 + i % 365))));
+                names.add(player.getName().toLowerCase(Locale.ROOT));
+                namesByIp.computeIfAbsent(player.getAddress().getAddress().getHostAddress(), ip -> new ArrayList<>())
+                        .add(player.getName());
+            }
+        }
+
+        @Override
+        public Optional<AuthMePlayer> playerInfo(String name) {
+            pause();
+            return Optional.ofNullable(players.get(name.toLowerCase(Locale.ROOT)));
+        }
+
+        @Override
+        public List<String> namesByIp(String ip) {
+            pause();
+            List<String> found = namesByIp.get(ip);
+            return found == null ? Collections.<String>emptyList() : found;
+        }
+
+        @Override
+        public List<String> registeredNames() {
+            pause();
+            return names;
+        }
+
+        private void pause() {
+            queries.increment();
+            if (latencyMillis <= 0) return;
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** 异步线程上的聊天消息 */
+    private static final class Chat {
+
+        private final ExpansionUtil expansion;
+        private final List<Player> players;
+        private final Histogram latencies;
+        private final Failures failures;
+        private volatile boolean measuring;
+
+        private Chat(ExpansionUtil expansion, List<Player> players, Histogram latencies, Failures failures) {
+            this.expansion = expansion;
+            this.players = players;
+            this.latencies = latencies;
+            this.failures = failures;
+        }
+
+        /** 每个线程以 {@code rate / threads} 的速度发送消息，起始时间错开 */
+        private ScheduledExecutorService start(int threads, int rate) {
+            int count = Math.max(1, threads);
+            ScheduledExecutorService pool = Executors.newScheduledThreadPool(count, task -> {
+                Thread thread = new Thread(task, "simulated-chat");
+                thread.setDaemon(true);
+                return thread;
+            });
+            if (rate <= 0) return pool;
+            long interval = TimeUnit.SECONDS.toNanos(1) * count / rate;
+            for (int i = 0; i < count; i++) {
+                pool.scheduleAtFixedRate(this::message, interval * i / count, interval, TimeUnit.NANOSECONDS);
+            }
+            return pool;
+        }
+
+        /** 异常只计数，不能抛出：{@code scheduleAtFixedRate} 的任务抛出异常后不会再执行 */
+        private void message() {
+            Player player = players.get(ThreadLocalRandom.current().nextInt(players.size()));
+            for (String identifier : CHAT) {
+                long start = System.nanoTime();
+                try {
+                    expansion.onPlaceholderRequest(player, identifier);
+                } catch (RuntimeException | Error e) {
+                    failures.record(identifier, e);
+                    continue;
+                }
+                if (measuring) latencies.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /** 请求抛出的异常：统计次数并保留第一个异常，结束时输出 */
+    private static final class Failures {
+
+        private final LongAdder count = new LongAdder();
+        private final AtomicReference<String> first = new AtomicReference<>();
+        private volatile Throwable firstError;
+
+        private void record(String identifier, Throwable error) {
+            count.increment();
+            if (first.compareAndSet(null, identifier)) firstError = error;
+        }
+
+        private long count() {
+            return count.sum();
+        }
+
+        /**
+         * 有失败时输出第一个异常。
+         *
+         * @param thread 线程类别，用于输出
+         * @return 是否有失败
+         */
+        private boolean report(String thread) {
+            long failures = count();
+            if (failures == 0) return false;
+            System.out.printf(Locale.ROOT, "FAILED: %d %s request(s) threw, first on %s:%n", failures, thread, first.get());
+            Throwable error = firstError;
+            if (error != null) error.printStackTrace(System.out);
+            return true;
+        }
+    }
+
+    /**
+     * 纳秒耗时的对数直方图：每个 2 的幂区间再分 64 个子桶，相对误差不超过 1/64；
+     * 记录不分配对象，可以并发记录。
+     */
+    private static final class Histogram {
+
+        private static final int SUB_BUCKETS = 64;
+        private static final int SUB_BITS = 6;
+
+        private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BITS + 1) * SUB_BUCKETS);
+        private final LongAdder total = new LongAdder();
+        private volatile long max;
+
+        private void record(long nanos) {
+            long value = Math.max(0, nanos);
+            counts.incrementAndGet(index(value));
+            total.increment();
+            if (value > max) max = value;
+        }
+
+        private static int index(long value) {
+            if (value < SUB_BUCKETS) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        private static long lowerBound(int index) {
+            if (index < SUB_BUCKETS) return index;
+            int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+            long sub = index % SUB_BUCKETS;
+            return (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+        }
+
+        private long count() {
+            return total.sum();
+        }
+
+        private long max() {
+            return max;
+        }
+
+        private long percentile(double quantile) {
+            long count = count();
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(count * quantile);
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= rank) return Math.min(max, lowerBound(i));
+            }
+            return max;
+        }
+    }
+
+    /** 当前线程累计分配的字节数，仅 HotSpot 系 JVM 支持 */
+    private static final class AllocationMeter {
+
+        private final com.sun.management.ThreadMXBean bean;
+        private final long threadId = Thread.currentThread().getId();
+
+        private AllocationMeter() {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            com.sun.management.ThreadMXBean hotspot = threads instanceof com.sun.management.ThreadMXBean
+                    ? (com.sun.management.ThreadMXBean) threads : null;
+            this.bean = hotspot != null && hotspot.isThreadAllocatedMemorySupported() ? hotspot : null;
+            if (bean != null) bean.setThreadAllocatedMemoryEnabled(true);
+        }
+
+        private boolean isSupported() {
+            return bean != null;
+        }
+
+        private long allocated() {
+            return bean == null ? 0 : bean.getThreadAllocatedBytes(threadId);
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.MaddyJace.util;
+
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 参数分割与嵌套模板渲染：{@link ExpansionUtil#splitByDotIgnoreQuotes(String)}、
+ * {@link ExpansionUtil#parseAndReplace(String, org.bukkit.entity.Player)}。
+ * <p>
+ * 模板渲染同时测量改用 {@link Template} 之前的正则实现（{@code legacy*}），作为对比基线；
+ * 分割、固定模板与按片段数生成的模板各自使用独立的 {@link State}，参数互不交叉。
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+
+    private static final Pattern LEGACY_PATTERN = Pattern.compile("(?<!\\\\)\\{([^{}]*)}");
+
+    @State(Scope.Benchmark)
+    public static class Identifiers {
+
+        @Param({
+                "getTheWeek",
+                "diffDays.second.\"23:59:59\".false",
+                "authMe.registrationDate.\"yyyy-MM-dd HH:mm:ss\"",
+                "luckPermsExpiryTime.\"{luckperms_expiry_time_vip}\".hour"
+        })
+        public String identifier;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Templates {
+
+        @Param({
+                "&a剩余 {mut_diffDays.second.\"23:59:59\".false} 秒",
+                "{mut_bukkit.itemInHand} x{mut_bukkit.itemInHandAmount}",
+                "{mut_authMe.listNameByIp.\"{mut_getTheWeek}\"}"
+        })
+        public String template;
+
+        @Setup
+        public void setup() {
+            BenchmarkStubs.install();
+        }
+    }
+
+    /** 文本与占位符交替的模板，{@code segments} 为片段总数 */
+    @State(Scope.Benchmark)
+    public static class Segments {
+
+        @Param({"10", "50", "200"})
+        public int segments;
+
+        public String template;
+
+        @Setup
+        public void setup() {
+            BenchmarkStubs.install();
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < segments; i++) {
+                builder.append(i % 2 == 0 ? "&7第" + i + "段 " : "{mut_bukkit.onlineCount}");
+            }
+            template = builder.toString();
+        }
+    }
+
+    @Benchmark
+    public List<String> splitByDotIgnoreQuotes(Identifiers state) {
+        return ExpansionUtil.splitByDotIgnoreQuotes(state.identifier);
+    }
+
+    @Benchmark
+    public String parseAndReplace(Templates state) {
+        return ExpansionUtil.parseAndReplace(state.template, BenchmarkStubs.PLAYER);
+    }
+
+    @Benchmark
+    public String legacyParseAndReplace(Templates state) {
+        return legacyParseAndReplace(state.template, BenchmarkStubs.PLAYER);
+    }
+
+    @Benchmark
+    public String parseAndReplaceSegments(Segments state) {
+        return ExpansionUtil.parseAndReplace(state.template, BenchmarkStubs.PLAYER);
+    }
+
+    @Benchmark
+    public String legacyParseAndReplaceSegments(Segments state) {
+        return legacyParseAndReplace(state.template, BenchmarkStubs.PLAYER);
+    }
+
+    /** 改用 {@link Template} 之前的实现：每替换一个占位符都重新拼接字符串并从头匹配 */
+    private static String legacyParseAndReplace(String str, Player player) {
+        Matcher matcher = LEGACY_PATTERN.matcher(str);
+        while (matcher.find()) {
+            String inner = matcher.group(1);
+            String replacement = BenchmarkStubs.resolve(player, "%" + inner + "%");
+            str = str.substring(0, matcher.start()) + replacement + str.substring(matcher.end());
+            matcher = LEGACY_PATTERN.matcher(str);
+        }
+        str = str.replaceAll("\\\\([{}])", "$1");
+        return str.replace("&", "§");
+    }
+
+}
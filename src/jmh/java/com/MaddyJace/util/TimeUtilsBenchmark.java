@@ -0,0 +1,86 @@
+package com.MaddyJace.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TimeUtils} 的每个公开方法，以及 {@link DurationParser#parseToDays(String)}。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeUtilsBenchmark {
+
+    private final LocalTime time = LocalTime.of(23, 59, 59);
+    private int counter;
+
+    @Benchmark
+    public long diffDays() {
+        return TimeUtils.diffDays("23:59:59", "second", false);
+    }
+
+    @Benchmark
+    public long diffDaysParsed() {
+        return TimeUtils.diffDays(time, TimeUtils.Unit.SECOND, true);
+    }
+
+    @Benchmark
+    public long diffWeeks() {
+        return TimeUtils.diffWeeks("12:00:00", 5, "minute");
+    }
+
+    @Benchmark
+    public long diffWeeksParsed() {
+        return TimeUtils.diffWeeks(time, 5, TimeUtils.Unit.MINUTE);
+    }
+
+    @Benchmark
+    public long diffMonth() {
+        return TimeUtils.diffMonth("00:00:00", 15, "hour");
+    }
+
+    @Benchmark
+    public long diffMonthParsed() {
+        return TimeUtils.diffMonth(time, 15, TimeUtils.Unit.HOUR);
+    }
+
+    @Benchmark
+    public LocalTime parseTime() {
+        return TimeUtils.parseTime("12:30:00");
+    }
+
+    @Benchmark
+    public long unitConversion() {
+        return TimeUtils.unitConversion(123456789L, "minute");
+    }
+
+    @Benchmark
+    public String getTheWeek() {
+        return TimeUtils.getTheWeek();
+    }
+
+    @Benchmark
+    public long parseToDays() {
+        return DurationParser.parseToDays("1mo 2w 3d 4h 5m 6s");
+    }
+
+    /** 每次都是新的字符串，测量未命中缓存时的扫描开销 */
+    @Benchmark
+    public long parseToDaysUncached() {
+        return DurationParser.parseToDays((counter++ & 1023) + "d 4h 5m 6s");
+    }
+
+}
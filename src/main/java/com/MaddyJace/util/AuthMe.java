@@ -1,10 +1,17 @@
 package com.MaddyJace.util;
 
-import fr.xephi.authme.api.v3.AuthMeApi;
 import fr.xephi.authme.api.v3.AuthMePlayer;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.plugin.Plugin;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -12,6 +19,8 @@ import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * AuthMe 相关工具类。
@@ -19,9 +28,264 @@ import java.util.Optional;
  * 提供与 AuthMe 插件交互的辅助方法，例如获取玩家注册日期、注册状态，
  * 通过 IP 获取玩家列表和数量等。
  * </p>
+ * <p>
+ * 扩展启动后，注册信息相关的查询均通过 {@link AuthMeCache} 异步加载并缓存，
+ * 占位符在首次加载完成前返回配置项 {@code authme.loading-text}；
+ * 按 IP 查询的账号列表由 {@link AuthMeIpIndex} 维护。
+ * </p>
+ * <p>
+ * 注册时间读到后写入 {@link RegistrationStore}，重启后已知玩家的注册时间直接从本地文件读取。
+ * 注册排名与注册数统计由 {@link RegistrationIndex} 提供，第一次使用时在后台构建。
+ * </p>
  */
 public class AuthMe {
 
+    /** 玩家信息缓存，扩展启动后可用；未启动时直接同步查询 AuthMe */
+    private static volatile AuthMeCache cache;
+    /** IP -> 账号列表索引，扩展启动后可用 */
+    private static volatile AuthMeIpIndex ipIndex;
+    private static AuthMeEventListener authMeEvents;
+    /** 包装 AuthMe 查询的熔断器，未启用时为 {@code null} */
+    private static volatile AuthMeCircuitBreaker breaker;
+    /** AuthMe 数据的查询入口，注册扩展时按 {@link Capabilities#authMe()} 绑定 */
+    private static volatile AuthMeSource source = AuthMeSource.API;
+    /** 执行异步查询的加载器，扩展启动后可用 */
+    private static volatile AuthMeLoader loader;
+    /** 持久化的注册时间表，未启用或打开失败时为 {@code null} */
+    private static volatile RegistrationStore registrations;
+    /** 全部账号的注册时间索引，扩展启动后可用 */
+    private static volatile RegistrationIndex registrationIndex;
+
+    /** {@link #registrationMillis(Player)} 的返回值：缓存首次加载未完成 */
+    private static final long LOADING = Long.MIN_VALUE;
+    /** 注册时间存储文件名，位于 PlaceholderAPI 数据目录 */
+    private static final String REGISTRATION_FILE = "mut-registrations.dat";
+
+    /**
+     * 注册 {@code authMe.*} 占位符。
+     *
+     * @param registry 占位符注册表
+     */
+    static void register(PlaceholderRegistry registry) {
+        registry.register("authMe.registered", 0, args -> player -> {
+            // 只看缓存：本地存储不会得知注销，可能仍有已注销账号的记录
+            Optional<AuthMePlayer> info = playerInfo(player);
+            if (info == null) return loadingText();
+            return info.isPresent() ? "true" : "false";
+        });
+        registry.register("authMe.getUserCountByIp", 0, args -> player -> String.valueOf(getUserCountByIp(player)));
+        registry.register("authMe.registrationDate", 1, args -> {
+            DateTimeFormatter pattern = PatternCache.formatter(args.get(0));
+            return player -> {
+                if (pattern == null) return "null";
+                long millis = registrationMillis(player);
+                return millis == LOADING ? loadingText() : formatRegistrationDate(millis, pattern);
+            };
+        });
+        registry.register("authMe.registrationDiffDate", 1, args -> {
+            TimeUtils.Unit unit = TimeUtils.Unit.parse(args.get(0));
+            if (unit == null) return player -> "-1";
+            // 注册时长按玩家记忆，每个玩家每个 tick 最多计算一次
+            return PlaceholderMemo.perPlayer(player -> {
+                long millis = registrationMillis(player);
+                return millis == LOADING ? loadingText() : String.valueOf(registrationDiff(millis, unit));
+            });
+        });
+        registry.register("authMe.registrationRank", 0, args -> PlaceholderMemo.perPlayer(player -> {
+            RegistrationIndex.Snapshot index = indexSnapshot();
+            if (index == null) return loadingText();
+            long millis = registrationMillis(player);
+            if (millis == LOADING) return loadingText();
+            return millis > 0 ? String.valueOf(index.rank(millis)) : "-1";
+        }));
+        registry.register("authMe.registeredSince", 2, args -> {
+            TimeUtils.Unit unit = TimeUtils.Unit.parse(args.get(0));
+            long amount = parseLong(args.get(1));
+            if (unit == null || amount < 0) return player -> "-1";
+            // 与玩家无关，每个 tick 最多计算一次
+            return PlaceholderMemo.global(player -> {
+                RegistrationIndex.Snapshot index = indexSnapshot();
+                return index == null ? loadingText() : String.valueOf(index.countSince(since(unit, amount)));
+            });
+        });
+        registry.register("authMe.listNameByIp", 1, args -> {
+            String separator = args.get(0);
+            return player -> getNamesByIp(player, separator);
+        });
+        registry.register("authMe.breaker", 0, args -> {
+            String field = args.isEmpty() ? "state" : args.get(0).toLowerCase(Locale.ROOT);
+            return player -> {
+                AuthMeCircuitBreaker current = breaker;
+                if (current == null) return "DISABLED";
+                return field.equals("state") ? current.state().name() : String.valueOf(current.counter(field));
+            };
+        });
+    }
+
+    /**
+     * 启动玩家信息缓存并注册相关监听器；配置项 {@code authme.breaker.enabled} 为 true 时
+     * 所有 AuthMe 查询经过 {@link AuthMeCircuitBreaker}；配置项 {@code authme.registration-store}
+     * 为 true 时打开 {@link RegistrationStore}。AuthMe 未安装时什么也不做，查询入口为 {@link AuthMeSource#NONE}。
+     * <p>启动（包括 {@code /papi reload}）时由 {@link AuthMeLoader} 并行预加载所有在线玩家的信息。</p>
+     *
+     * @param expansion 扩展实例，用于读取配置与调度任务
+     */
+    static void start(ExpansionUtil expansion) {
+        if (!Capabilities.authMe()) return;
+        Plugin plugin = expansion.host();
+        ConfigurationSection settings = expansion.settings();
+        if (settings.getBoolean("authme.breaker.enabled", true)) {
+            AuthMeCircuitBreaker created = new AuthMeCircuitBreaker(source,
+                    settings.getLong("authme.breaker.slow-call-millis", 250),
+                    settings.getInt("authme.breaker.failure-threshold", 5),
+                    settings.getLong("authme.breaker.window-seconds", 30),
+                    settings.getLong("authme.breaker.open-seconds", 30),
+                    expansion::warning);
+            breaker = created;
+            source = created;
+        }
+        if (settings.getBoolean("authme.registration-store", true)) {
+            File file = new File(plugin.getDataFolder(), REGISTRATION_FILE);
+            try {
+                registrations = RegistrationStore.open(file, expansion::warning);
+            } catch (IOException e) {
+                expansion.warning("Cannot open registration store " + file + ": " + e.getMessage());
+            }
+        }
+        AuthMeLoader authMeLoader = new AuthMeLoader(settings.getInt("authme.workers", 4));
+        AuthMeCache authMeCache = new AuthMeCache(authMeLoader, registrations,
+                settings.getLong("authme.cache-ttl-seconds", 300),
+                settings.getString("authme.loading-text", "..."));
+        AuthMeIpIndex authMeIpIndex = new AuthMeIpIndex(authMeLoader);
+        Bukkit.getPluginManager().registerEvents(authMeCache, plugin);
+        Bukkit.getPluginManager().registerEvents(authMeIpIndex, plugin);
+        RegistrationIndex index = new RegistrationIndex(authMeLoader, registrations, expansion::info, expansion::warning);
+        authMeEvents = new AuthMeEventListener(authMeCache, authMeIpIndex, registrations, index);
+        Bukkit.getPluginManager().registerEvents(authMeEvents, plugin);
+        loader = authMeLoader;
+        cache = authMeCache;
+        ipIndex = authMeIpIndex;
+        registrationIndex = index;
+        warmUp(expansion, authMeLoader, authMeCache, authMeIpIndex);
+    }
+
+    private static void warmUp(ExpansionUtil expansion, AuthMeLoader authMeLoader,
+                               AuthMeCache authMeCache, AuthMeIpIndex authMeIpIndex) {
+        int online = Bukkit.getOnlinePlayers().size();
+        long start = System.nanoTime();
+        CompletableFuture.allOf(authMeCache.prefetchOnline(), authMeIpIndex.loadOnline()).thenRun(() -> {
+            if (online == 0) return;
+            expansion.info(String.format(Locale.ROOT, "AuthMe warm-up loaded %d online players in %d ms (%s).",
+                    online, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    authMeLoader.isVirtual() ? "virtual threads" : "platform threads"));
+        });
+    }
+
+    /** 停止玩家信息缓存并注销监听器 */
+    static void stop() {
+        AuthMeCache authMeCache = cache;
+        AuthMeIpIndex authMeIpIndex = ipIndex;
+        cache = null;
+        ipIndex = null;
+        RegistrationIndex index = registrationIndex;
+        registrationIndex = null;
+        if (index != null) index.close();
+        AuthMeLoader authMeLoader = loader;
+        loader = null;
+        if (authMeLoader != null) authMeLoader.close();
+        if (authMeCache != null) HandlerList.unregisterAll(authMeCache);
+        if (authMeIpIndex != null) HandlerList.unregisterAll(authMeIpIndex);
+        if (authMeEvents != null) {
+            HandlerList.unregisterAll(authMeEvents);
+            authMeEvents = null;
+        }
+        RegistrationStore store = registrations;
+        registrations = null;
+        if (store != null) store.close();
+        AuthMeCircuitBreaker current = breaker;
+        breaker = null;
+        if (current != null && source == current) source = current.delegate();
+    }
+
+    /** @return 当前的 AuthMe 查询入口 */
+    static AuthMeSource source() {
+        return source;
+    }
+
+    /**
+     * 替换 AuthMe 查询入口，传入 {@code null} 时恢复为 {@link AuthMeSource#API}。
+     *
+     * @param authMeSource 查询入口
+     */
+    static void setSource(AuthMeSource authMeSource) {
+        source = authMeSource == null ? AuthMeSource.API : authMeSource;
+    }
+
+    /**
+     * 获取玩家的 AuthMe 信息，优先读取缓存。
+     * <p>批量求值期间同一玩家只读取一次，见 {@link EvaluationContext}。</p>
+     *
+     * @param player 玩家对象，可为 {@code null}
+     * @return 玩家信息；未注册或查询失败时为空；缓存首次加载未完成时返回 {@code null}
+     */
+    private static Optional<AuthMePlayer> playerInfo(Player player) {
+        if (player == null) return Optional.empty();
+        EvaluationContext context = EvaluationContext.current(player);
+        if (context != null) return context.authMe(() -> loadPlayerInfo(player));
+        return loadPlayerInfo(player);
+    }
+
+    /**
+     * 获取玩家的注册时间，优先读取 {@link RegistrationStore}，未记录时读取缓存（由 {@link AuthMeCache} 写入存储）。
+     *
+     * @param player 玩家对象，可为 {@code null}
+     * @return 注册时间（纪元毫秒）；未注册或查询失败时返回 -1；缓存首次加载未完成时返回 {@link #LOADING}
+     */
+    private static long registrationMillis(Player player) {
+        long stored = storedRegistration(player);
+        if (stored > 0) return stored;
+        Optional<AuthMePlayer> info = playerInfo(player);
+        if (info == null) return LOADING;
+        if (!info.isPresent()) return -1;
+        Instant date = info.get().getRegistrationDate();
+        if (date == null) return -1;
+        return date.toEpochMilli();
+    }
+
+    /** @return 本地记录的注册时间，没有记录时返回 {@link RegistrationStore#UNKNOWN} */
+    private static long storedRegistration(Player player) {
+        RegistrationStore store = registrations;
+        return store == null || player == null ? RegistrationStore.UNKNOWN : store.get(player.getName());
+    }
+
+    /** @return 注册时间索引的当前快照；扩展未启动或索引尚未构建完成时返回 {@code null} */
+    private static RegistrationIndex.Snapshot indexSnapshot() {
+        RegistrationIndex index = registrationIndex;
+        return index == null ? null : index.snapshot();
+    }
+
+    private static Optional<AuthMePlayer> loadPlayerInfo(Player player) {
+        AuthMeCache current = cache;
+        if (current != null) return current.get(player.getName());
+        // 扩展未启动：直接查询，AuthMe 未安装时由 AuthMeSource.NONE 返回常量
+        try {
+            return source.playerInfo(player.getName());
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    /** @return 玩家的 IP 地址，无法获取（例如假人）时返回 {@code null} */
+    private static String ip(Player player) {
+        InetSocketAddress address = player.getAddress();
+        return address == null || address.getAddress() == null ? null : address.getAddress().getHostAddress();
+    }
+
+    private static String loadingText() {
+        AuthMeCache current = cache;
+        return current == null ? "null" : current.loadingText();
+    }
+
     /**
      * 获取玩家注册日期，并按照指定格式返回字符串。
      * <p>
@@ -34,17 +298,27 @@ public class AuthMe {
      * @return 格式化后的注册日期字符串，获取失败返回 "null"
      */
     public static String getRegistrationDate(Player player, String timeStr) {
-        try {
-            Optional<AuthMePlayer> authMePlayer = AuthMeApi.getInstance().getPlayerInfo(player.getName());
-            if (authMePlayer.isPresent()) {
-                LocalDateTime dateTime = LocalDateTime.ofInstant(authMePlayer.get().getRegistrationDate(), ZoneId.systemDefault());
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern(timeStr);
-                return dateTime.format(formatter);
-            }
-            return "null";
-        } catch (Exception e) {
-            return "null";
-        }
+        return getRegistrationDate(player, PatternCache.formatter(timeStr));
+    }
+
+    /**
+     * {@link #getRegistrationDate(Player, String)} 的预编译版本，格式化器由调用方提前构建。
+     *
+     * @param player 要查询的 {@link Player} 对象
+     * @param formatter 日期格式化器，必须能格式化 {@link LocalDateTime}，为 {@code null} 时直接返回 "null"
+     * @return 格式化后的注册日期字符串，获取失败返回 "null"
+     */
+    public static String getRegistrationDate(Player player, DateTimeFormatter formatter) {
+        if (formatter == null) return "null";
+        long millis = registrationMillis(player);
+        return millis == LOADING ? "null" : formatRegistrationDate(millis, formatter);
+    }
+
+    /** 格式化器来自 {@link PatternCache#formatter(String)}，已确认可以格式化 {@link LocalDateTime} */
+    private static String formatRegistrationDate(long millis, DateTimeFormatter formatter) {
+        if (millis <= 0) return "null";
+        LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        return dateTime.format(formatter);
     }
 
     /**
@@ -59,34 +333,75 @@ public class AuthMe {
      * @return 注册时间到当前时间的时间差，单位由 type 指定，获取失败返回 -1
      */
     public static long getRegistrationDiffDate(Player player, String type) {
+        return getRegistrationDiffDate(player, TimeUtils.Unit.parse(type));
+    }
+
+    /**
+     * {@link #getRegistrationDiffDate(Player, String)} 的预解析版本。
+     *
+     * @param player 要查询的 {@link Player} 对象
+     * @param unit 时间单位，为 {@code null} 时返回 -1
+     * @return 注册时间到当前时间的时间差，获取失败返回 -1
+     */
+    public static long getRegistrationDiffDate(Player player, TimeUtils.Unit unit) {
+        if (unit == null) return -1;
+        long millis = registrationMillis(player);
+        return millis == LOADING ? -1 : registrationDiff(millis, unit);
+    }
+
+    private static long registrationDiff(long millis, TimeUtils.Unit unit) {
+        if (millis > 0) {
+            LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+            return unitConversion(unit, dateTime);
+        } return -1;
+    }
+    /**
+     * 计算当前时间之前 {@code amount} 个单位的时刻，DAY、MONTH、YEAR 按日历计算，与 {@link #unitConversion} 一致。
+     *
+     * @return 纪元毫秒
+     */
+    private static long since(TimeUtils.Unit unit, long amount) {
+        switch (unit) {
+            case DAY:   return calendarMillis(LocalDateTime.now().minusDays(amount));
+            case MONTH: return calendarMillis(LocalDateTime.now().minusMonths(amount));
+            case YEAR:  return calendarMillis(LocalDateTime.now().minusYears(amount));
+            default:    return System.currentTimeMillis() - amount * unit.toMillis();
+        }
+    }
+
+    private static long calendarMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long parseLong(String value) {
         try {
-            Optional<AuthMePlayer> authMePlayer = AuthMeApi.getInstance().getPlayerInfo( player.getName() );
-            if (authMePlayer.isPresent()) {
-                LocalDateTime dateTime = LocalDateTime.ofInstant(authMePlayer.get().getRegistrationDate(), ZoneId.systemDefault());
-                return unitConversion(type, dateTime);
-            } return -1;
-        } catch (Exception e) {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
             return -1;
         }
     }
+
     /**
      * 将起始时间与当前时间的差值转换为指定单位。
+     * <p>
+     * DAY、MONTH、YEAR 按日历计算，其余单位按实际时长计算。
+     * </p>
      *
-     * @param unit 时间单位字符串
+     * @param unit 时间单位
      * @param start 起始 {@link LocalDateTime}
-     * @return 时间差值，如果单位不支持则返回 -1
+     * @return 时间差值
      */
-    private static long unitConversion(String unit, LocalDateTime start) {
+    private static long unitConversion(TimeUtils.Unit unit, LocalDateTime start) {
         LocalDateTime end = LocalDateTime.now();
-        switch (unit.toUpperCase(Locale.ROOT)) {
-            case "MILLI":  return Duration.between(start, end).toMillis();
-            case "SECOND": return Duration.between(start, end).getSeconds();
-            case "MINUTE": return Duration.between(start, end).toMinutes();
-            case "HOUR":   return Duration.between(start, end).toHours();
-            case "DAY":    return ChronoUnit.DAYS.between(start, end);
-            case "MONTH":  return ChronoUnit.MONTHS.between(start, end);
-            case "YEAR":   return ChronoUnit.YEARS.between(start, end);
-            default:       return -1;
+        switch (unit) {
+            case MILLI:  return Duration.between(start, end).toMillis();
+            case SECOND: return Duration.between(start, end).getSeconds();
+            case MINUTE: return Duration.between(start, end).toMinutes();
+            case HOUR:   return Duration.between(start, end).toHours();
+            case DAY:    return ChronoUnit.DAYS.between(start, end);
+            case MONTH:  return ChronoUnit.MONTHS.between(start, end);
+            case YEAR:   return ChronoUnit.YEARS.between(start, end);
+            default:     return -1;
         }
     }
 
@@ -98,11 +413,8 @@ public class AuthMe {
      * @return 如果玩家已注册返回 {@code true}，否则返回 {@code false}
      */
     public static boolean isRegistered(Player player) {
-        try {
-            return AuthMeApi.getInstance().isRegistered(player.getName());
-        } catch (Exception e) {
-            return false;
-        }
+        Optional<AuthMePlayer> info = playerInfo(player);
+        return info != null && info.isPresent();
     }
 
     /**
@@ -111,16 +423,24 @@ public class AuthMe {
      * 如果获取失败或列表为空，则返回玩家自身的名称。
      * </p>
      *
-     * @param player 玩家对象，用于获取 IP
+     * @param player 玩家对象，用于获取 IP，可为 {@code null}
      * @param input 名称连接符，例如 "," 或 " / "
-     * @return 使用该 IP 的所有玩家名称字符串
+     * @return 使用该 IP 的所有玩家名称字符串；玩家为 {@code null}（控制台等）时返回 "null"
      */
     public static String getNamesByIp(Player player, String input) {
+        if (player == null) return "null";
+        AuthMeIpIndex index = ipIndex;
+        if (index != null) {
+            String joined = index.joinedNames(player, input);
+            return joined == null || joined.isEmpty() ? player.getName() : joined;
+        }
+        String ip = ip(player);
+        if (ip == null) return player.getName();
         try {
-            List<String> list = AuthMeApi.getInstance().getNamesByIp(player.getAddress().getAddress().getHostAddress());
+            List<String> list = source.namesByIp(ip);
             if (list == null || list.isEmpty()) return player.getName();
             return String.join(input, list);
-        } catch (Exception e) {
+        } catch (RuntimeException e) {
             return player.getName();
         }
     }
@@ -131,15 +451,24 @@ public class AuthMe {
      * 如果获取失败或列表为空，则返回 1。
      * </p>
      *
-     * @param player 玩家对象，用于获取 IP
-     * @return 使用该 IP 的用户数量
+     * @param player 玩家对象，用于获取 IP，可为 {@code null}
+     * @return 使用该 IP 的用户数量；玩家为 {@code null}（控制台等）时返回 0
      */
     public static int getUserCountByIp(Player player) {
+        if (player == null) return 0;
+        AuthMeIpIndex index = ipIndex;
+        if (index != null) {
+            List<String> list = index.names(player);
+            if (list == null) return 0;
+            return list.isEmpty() ? 1 : list.size();
+        }
+        String ip = ip(player);
+        if (ip == null) return 0;
         try {
-            List<String> list = AuthMeApi.getInstance().getNamesByIp(player.getAddress().getAddress().getHostAddress());
+            List<String> list = source.namesByIp(ip);
             if(list == null || list.isEmpty()) return 1;
             return list.size();
-        } catch (Exception e) {
+        } catch (RuntimeException e) {
             return 0;
         }
     }
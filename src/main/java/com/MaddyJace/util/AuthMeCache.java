@@ -0,0 +1,171 @@
+package com.MaddyJace.util;
+
+import fr.xephi.authme.api.v3.AuthMeApi;
+import fr.xephi.authme.api.v3.AuthMePlayer;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * AuthMe 玩家信息缓存。
+ * <p>
+ * {@link AuthMeApi#getPlayerInfo(String)} 在 MySQL 后端下是一次同步数据库查询，
+ * 直接在占位符中调用会阻塞主线程。本类按玩家缓存查询结果：
+ * </p>
+ * <ul>
+ *     <li>玩家加入时在异步线程预加载，退出时移除；只缓存在线玩家，其它名称不创建条目也不查询；</li>
+ *     <li>超过 TTL 后在异步线程刷新，刷新期间继续返回旧值，每个条目同时只有一次由请求触发的刷新；</li>
+ *     <li>首次加载尚未完成时 {@link #get(String)} 返回 {@code null}，调用方返回占位文本，从不阻塞。</li>
+ * </ul>
+ * <p>查询由 {@link AuthMeLoader} 执行，同一玩家同时只有一个查询在进行。
+ * 读到的注册时间在加载器的工作线程上写入 {@link RegistrationStore}（包括扩容），不占用主线程。</p>
+ */
+final class AuthMeCache implements Listener {
+
+    private final AuthMeLoader loader;
+    /** 可为 {@code null} */
+    private final RegistrationStore registrations;
+    private final long ttlMillis;
+    private final String loadingText;
+
+    /** 小写玩家名 -> 缓存条目 */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param loader        执行查询的加载器
+     * @param registrations 保存注册时间的本地存储，可为 {@code null}
+     * @param ttlSeconds    缓存有效期（秒）
+     * @param loadingText   首次加载完成前返回的文本
+     */
+    AuthMeCache(AuthMeLoader loader, RegistrationStore registrations, long ttlSeconds, String loadingText) {
+        this.loader = loader;
+        this.registrations = registrations;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(Math.max(1, ttlSeconds));
+        this.loadingText = loadingText;
+    }
+
+    /**
+     * 获取玩家信息。
+     * <p>缓存缺失或过期时会触发异步加载，本方法本身从不阻塞。</p>
+     *
+     * @param name 玩家名称
+     * @return 玩家信息；玩家未注册时为空的 {@link Optional}；首次加载未完成或玩家不在线时返回 {@code null}
+     */
+    Optional<AuthMePlayer> get(String name) {
+        // 条目只在加入时创建，退出后到达的请求不会重新创建
+        Entry entry = entries.get(key(name));
+        if (entry == null) return null;
+        Optional<AuthMePlayer> info = entry.info;
+        if ((info == null || System.currentTimeMillis() - entry.loadedAt >= ttlMillis)
+                && entry.loading.compareAndSet(false, true)) {
+            load(name, entry).whenComplete((ignored, error) -> entry.loading.set(false));
+        }
+        return info;
+    }
+
+    /** @return 首次加载完成前占位符返回的文本 */
+    String loadingText() {
+        return loadingText;
+    }
+
+    /**
+     * 为当前所有在线玩家预加载信息，用于扩展启动或重载时；查询由加载器并行执行。
+     *
+     * @return 所有玩家加载完成（无论成功与否）时完成
+     */
+    CompletableFuture<Void> prefetchOnline() {
+        List<CompletableFuture<?>> loads = new ArrayList<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            loads.add(track(player.getName()));
+        }
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * 强制在异步线程重新加载指定玩家的信息（保留旧值直到加载完成）；玩家不在线时什么也不做。
+     *
+     * @return 加载完成时完成，从不以异常结束
+     */
+    CompletableFuture<Void> refresh(String name) {
+        Entry entry = entries.get(key(name));
+        return entry == null ? CompletableFuture.completedFuture(null) : load(name, entry);
+    }
+
+    /** 开始缓存在线玩家的信息并立即加载 */
+    private CompletableFuture<Void> track(String name) {
+        return load(name, entries.computeIfAbsent(key(name), k -> new Entry()));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        track(event.getPlayer().getName());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        entries.remove(key(event.getPlayer().getName()));
+    }
+
+    private CompletableFuture<Void> load(String name, Entry entry) {
+        // 熔断期间不调度新的查询，继续使用旧值
+        if (!AuthMe.source().isAvailable()) return CompletableFuture.completedFuture(null);
+        return loader.playerInfo(name).handle((info, error) -> {
+            if (error == null) {
+                entry.info = info;
+                entry.loadedAt = System.currentTimeMillis();
+                persist(name, info);
+            } else if (!(error instanceof AuthMeCircuitBreaker.Rejected) && !(error instanceof CancellationException)) {
+                // 查询失败时保留旧值，首次加载失败视为未注册；
+                // 熔断器打开或扩展停止时保留旧值，也不更新加载时间，之后的请求重新加载
+                if (entry.info == null) entry.info = Optional.empty();
+                entry.loadedAt = System.currentTimeMillis();
+            }
+            return null;
+        });
+    }
+
+    /** 将注册时间写入本地存储；已有相同记录时不写入 */
+    private void persist(String name, Optional<AuthMePlayer> info) {
+        RegistrationStore store = registrations;
+        if (store == null || !info.isPresent()) return;
+        Instant date = info.get().getRegistrationDate();
+        if (date == null) return;
+        long millis = date.toEpochMilli();
+        if (store.get(name) == millis) return;
+        // 查询在回调注册前已完成时回调在调用线程上执行，写入（可能扩容）转回工作线程
+        if (Bukkit.isPrimaryThread()) {
+            loader.execute(() -> store.put(name, millis));
+        } else {
+            store.put(name, millis);
+        }
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        /** {@code null} 表示尚未加载完成 */
+        private volatile Optional<AuthMePlayer> info;
+        private volatile long loadedAt;
+        /** 是否已有由 {@link #get(String)} 触发的加载在进行 */
+        private final AtomicBoolean loading = new AtomicBoolean();
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.MaddyJace.util;
+
+import fr.xephi.authme.api.v3.AuthMePlayer;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * AuthMe 查询的熔断器。
+ * <p>
+ * AuthMe 使用 MySQL 后端时，数据库卡顿会让每一次查询都变慢。本类包装 {@link AuthMeSource}，
+ * 记录每次调用的耗时：超过延迟预算的调用与抛出异常的调用都计为失败，
+ * 同一时间窗口内失败达到阈值后熔断器打开，之后的调用直接以 {@link Rejected} 拒绝，不再访问 AuthMe；
+ * {@link AuthMeCache} 与 {@link AuthMeIpIndex} 收到拒绝时继续提供上一次的值，
+ * 从未加载成功的玩家返回 {@code authme.loading-text}。
+ * </p>
+ * <p>
+ * 打开一段时间后进入半开状态，只放行一次探测调用（由缓存的异步加载线程发起，不阻塞主线程）：
+ * 探测成功则关闭熔断器，否则重新打开。
+ * </p>
+ */
+final class AuthMeCircuitBreaker implements AuthMeSource {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** 熔断器打开时抛出的异常，不记录调用栈 */
+    static final class Rejected extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private Rejected() {
+            super("AuthMe circuit breaker is open", null, false, false);
+        }
+    }
+
+    private static final Rejected REJECTED = new Rejected();
+
+    private final AuthMeSource delegate;
+    private final long slowCallNanos;
+    private final int failureThreshold;
+    private final long windowNanos;
+    private final long openNanos;
+    private final Consumer<String> log;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger windowFailures = new AtomicInteger();
+    private volatile long windowStart = System.nanoTime();
+    private volatile long openedAt;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder slowCalls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param delegate         实际的查询入口
+     * @param slowCallMillis   延迟预算（毫秒），超过时计为失败
+     * @param failureThreshold 时间窗口内打开熔断器所需的失败次数
+     * @param windowSeconds    统计失败次数的时间窗口（秒）
+     * @param openSeconds      打开后进入半开状态之前的等待时间（秒）
+     * @param log              状态变化时的日志输出
+     */
+    AuthMeCircuitBreaker(AuthMeSource delegate, long slowCallMillis, int failureThreshold,
+                         long windowSeconds, long openSeconds, Consumer<String> log) {
+        this.delegate = delegate;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, slowCallMillis));
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.windowNanos = TimeUnit.SECONDS.toNanos(Math.max(1, windowSeconds));
+        this.openNanos = TimeUnit.SECONDS.toNanos(Math.max(1, openSeconds));
+        this.log = log;
+    }
+
+    /** @return 被包装的查询入口 */
+    AuthMeSource delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Optional<AuthMePlayer> playerInfo(String name) {
+        boolean probe = acquire();
+        long start = System.nanoTime();
+        try {
+            Optional<AuthMePlayer> info = delegate.playerInfo(name);
+            onSuccess(System.nanoTime() - start, probe);
+            return info;
+        } catch (RuntimeException | Error e) {
+            onError(probe);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<String> namesByIp(String ip) {
+        boolean probe = acquire();
+        long start = System.nanoTime();
+        try {
+            List<String> names = delegate.namesByIp(ip);
+            onSuccess(System.nanoTime() - start, probe);
+            return names;
+        } catch (RuntimeException | Error e) {
+            onError(probe);
+            throw e;
+        }
+    }
+
+    /**
+     * 账号列表是一次全表查询，耗时与延迟预算无关，不计入失败次数，也不作为探测调用；
+     * 只在熔断器关闭时放行。
+     */
+    @Override
+    public List<String> registeredNames() {
+        if (state.get() != State.CLOSED) {
+            rejected.increment();
+            throw REJECTED;
+        }
+        calls.increment();
+        return delegate.registeredNames();
+    }
+
+    /** @return 熔断器关闭，或打开时间已到、可以进行探测 */
+    @Override
+    public boolean isAvailable() {
+        State current = state.get();
+        return current == State.CLOSED || (current == State.OPEN && System.nanoTime() - openedAt >= openNanos);
+    }
+
+    /**
+     * 判断是否允许调用。
+     *
+     * @return 本次调用是否为半开状态下的探测调用
+     * @throws Rejected 熔断器打开，或半开状态下已有探测调用
+     */
+    private boolean acquire() {
+        State current = state.get();
+        if (current == State.OPEN && System.nanoTime() - openedAt >= openNanos
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            calls.increment();
+            return true;
+        }
+        if (current != State.CLOSED) {
+            rejected.increment();
+            throw REJECTED;
+        }
+        calls.increment();
+        return false;
+    }
+
+    private void onSuccess(long nanos, boolean probe) {
+        if (nanos < slowCallNanos) {
+            if (probe && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+                resetWindow(System.nanoTime());
+                log.accept("AuthMe circuit breaker closed, AuthMe is responding again.");
+            }
+            return;
+        }
+        slowCalls.increment();
+        onFailure(probe, String.format(Locale.ROOT, "slow call (%d ms)", TimeUnit.NANOSECONDS.toMillis(nanos)));
+    }
+
+    private void onError(boolean probe) {
+        errors.increment();
+        onFailure(probe, "error");
+    }
+
+    private void onFailure(boolean probe, String reason) {
+        long now = System.nanoTime();
+        if (probe) {
+            open(State.HALF_OPEN, now, reason);
+            return;
+        }
+        if (now - windowStart >= windowNanos) resetWindow(now);
+        if (windowFailures.incrementAndGet() >= failureThreshold) open(State.CLOSED, now, reason);
+    }
+
+    private void open(State from, long now, String reason) {
+        if (!state.compareAndSet(from, State.OPEN)) return;
+        openedAt = now;
+        log.accept(String.format(Locale.ROOT, "AuthMe circuit breaker opened after %s, AuthMe calls are paused for %d s.",
+                reason, TimeUnit.NANOSECONDS.toSeconds(openNanos)));
+    }
+
+    private void resetWindow(long now) {
+        windowStart = now;
+        windowFailures.set(0);
+    }
+
+    /** @return 当前状态 */
+    State state() {
+        return state.get();
+    }
+
+    /**
+     * 读取统计字段。
+     *
+     * @param field calls、slow、errors、rejected、failures（当前窗口内的失败次数）
+     * @return 字段值，未知字段返回 -1
+     */
+    long counter(String field) {
+        switch (field) {
+            case "calls": return calls.sum();
+            case "slow": return slowCalls.sum();
+            case "errors": return errors.sum();
+            case "rejected": return rejected.sum();
+            case "failures": return windowFailures.get();
+            default: return -1;
+        }
+    }
+
+}
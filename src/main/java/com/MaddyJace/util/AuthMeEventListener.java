@@ -0,0 +1,70 @@
+package com.MaddyJace.util;
+
+import fr.xephi.authme.events.LoginEvent;
+import fr.xephi.authme.events.RegisterEvent;
+import fr.xephi.authme.events.UnregisterByAdminEvent;
+import fr.xephi.authme.events.UnregisterByPlayerEvent;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+/**
+ * AuthMe 自身事件的监听器。
+ * <p>
+ * 仅在 AuthMe 已安装时注册（否则加载事件类会失败），
+ * 注册、登录或注销账号后立即刷新 {@link AuthMeCache} 与 {@link AuthMeIpIndex}，
+ * 而不是等待缓存过期；注册或注销时同时清除 {@link RegistrationStore} 中的旧注册时间，
+ * 并增量更新 {@link RegistrationIndex}。
+ * </p>
+ */
+final class AuthMeEventListener implements Listener {
+
+    private final AuthMeCache cache;
+    private final AuthMeIpIndex ipIndex;
+    /** 可为 {@code null} */
+    private final RegistrationStore registrations;
+    private final RegistrationIndex index;
+
+    AuthMeEventListener(AuthMeCache cache, AuthMeIpIndex ipIndex, RegistrationStore registrations, RegistrationIndex index) {
+        this.cache = cache;
+        this.ipIndex = ipIndex;
+        this.registrations = registrations;
+        this.index = index;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onRegister(RegisterEvent event) {
+        forget(event.getPlayer().getName());
+        // AuthMe 以注册完成的时刻作为注册时间，不需要再查询
+        index.registered(event.getPlayer().getName(), System.currentTimeMillis());
+        cache.refresh(event.getPlayer().getName());
+        ipIndex.refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(LoginEvent event) {
+        cache.refresh(event.getPlayer().getName());
+        ipIndex.refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onUnregisterByPlayer(UnregisterByPlayerEvent event) {
+        forget(event.getPlayer().getName());
+        index.unregistered(event.getPlayer().getName());
+        cache.refresh(event.getPlayer().getName());
+        ipIndex.refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onUnregisterByAdmin(UnregisterByAdminEvent event) {
+        forget(event.getPlayerName());
+        index.unregistered(event.getPlayerName());
+        cache.refresh(event.getPlayerName());
+        if (event.getPlayer() != null) ipIndex.refresh(event.getPlayer());
+    }
+
+    private void forget(String name) {
+        if (registrations != null) registrations.remove(name);
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.MaddyJace.util;
+
+import fr.xephi.authme.api.v3.AuthMeApi;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * IP 到 AuthMe 账号列表的内存索引。
+ * <p>
+ * 取代每次占位符请求都调用 {@link AuthMeApi#getNamesByIp(String)} 的做法：
+ * 同一 IP 下的所有在线玩家共享一个条目，条目在启动时批量加载，
+ * 在玩家加入、AuthMe 注册或登录时于异步线程刷新，最后一名玩家退出后移除。
+ * 读取为 O(1)，按分隔符连接后的字符串也会被缓存。
+ * </p>
+ * <p>查询由 {@link AuthMeLoader} 执行，同一 IP 同时只有一个查询在进行。</p>
+ */
+final class AuthMeIpIndex implements Listener {
+
+    private final AuthMeLoader loader;
+
+    /** IP -> 条目 */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    /** 玩家 UUID -> 加入时的 IP，避免每次读取都调用 {@link Player#getAddress()} */
+    private final Map<UUID, String> addresses = new ConcurrentHashMap<>();
+
+    AuthMeIpIndex(AuthMeLoader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * 为当前所有在线玩家批量建立索引，每个 IP 只查询一次，查询由加载器并行执行。
+     *
+     * @return 所有 IP 加载完成（无论成功与否）时完成
+     */
+    CompletableFuture<Void> loadOnline() {
+        List<CompletableFuture<?>> loads = new ArrayList<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            loads.add(track(player));
+        }
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * 获取玩家所在 IP 的账号列表。
+     *
+     * @param player 玩家对象
+     * @return 账号列表；IP 未知时返回 {@code null}；尚未加载完成时返回空列表
+     */
+    List<String> names(Player player) {
+        Entry entry = entry(player);
+        return entry == null ? null : entry.snapshot.names;
+    }
+
+    /**
+     * 获取玩家所在 IP 的账号列表，并以指定分隔符连接。
+     *
+     * @param player    玩家对象
+     * @param separator 分隔符
+     * @return 连接后的字符串；IP 未知时返回 {@code null}；尚未加载完成或列表为空时返回空字符串
+     */
+    String joinedNames(Player player, String separator) {
+        Entry entry = entry(player);
+        if (entry == null) return null;
+        Snapshot snapshot = entry.snapshot;
+        return snapshot.joined.computeIfAbsent(separator, s -> String.join(s, snapshot.names));
+    }
+
+    /** 在异步线程重新加载玩家所在 IP 的账号列表 */
+    void refresh(Player player) {
+        Entry entry = entry(player);
+        if (entry == null) {
+            track(player);
+        } else {
+            load(addresses.get(player.getUniqueId()), entry);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        track(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        UUID uuid = event.getPlayer().getUniqueId();
+        String ip = addresses.remove(uuid);
+        if (ip == null) return;
+        entries.computeIfPresent(ip, (k, entry) -> {
+            entry.online.remove(uuid);
+            return entry.online.isEmpty() ? null : entry;
+        });
+    }
+
+    private Entry entry(Player player) {
+        if (player == null) return null;
+        String ip = addresses.get(player.getUniqueId());
+        return ip == null ? null : entries.get(ip);
+    }
+
+    private CompletableFuture<Void> track(Player player) {
+        InetSocketAddress address = player.getAddress();
+        if (address == null || address.getAddress() == null) return CompletableFuture.completedFuture(null);
+        String ip = address.getAddress().getHostAddress();
+        addresses.put(player.getUniqueId(), ip);
+        Entry entry = entries.compute(ip, (k, existing) -> {
+            Entry value = existing == null ? new Entry() : existing;
+            value.online.add(player.getUniqueId());
+            return value;
+        });
+        return entry.loaded ? CompletableFuture.completedFuture(null) : load(ip, entry);
+    }
+
+    private CompletableFuture<Void> load(String ip, Entry entry) {
+        // 熔断期间不调度新的查询，继续使用旧的列表
+        if (ip == null || !AuthMe.source().isAvailable()) return CompletableFuture.completedFuture(null);
+        return loader.namesByIp(ip).handle((names, error) -> {
+            if (error == null) {
+                entry.snapshot = new Snapshot(names == null ? Collections.emptyList() : Collections.unmodifiableList(names));
+                entry.loaded = true;
+            } else if (!(error instanceof AuthMeCircuitBreaker.Rejected) && !(error instanceof CancellationException)) {
+                // 查询失败时保留旧的列表；熔断器打开或扩展停止时之后的加入或刷新事件重新加载
+                entry.loaded = true;
+            }
+            return null;
+        });
+    }
+
+    private static final class Entry {
+        private volatile Snapshot snapshot = Snapshot.EMPTY;
+        private volatile boolean loaded;
+        /** 当前使用该 IP 的在线玩家 */
+        private final Set<UUID> online = ConcurrentHashMap.newKeySet();
+    }
+
+    /** 一次加载的结果，连同按分隔符缓存的连接字符串一起整体替换 */
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(Collections.emptyList());
+
+        private final List<String> names;
+        private final Map<String, String> joined = new ConcurrentHashMap<>();
+
+        private Snapshot(List<String> names) {
+            this.names = names;
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package com.MaddyJace.util;
+
+import fr.xephi.authme.api.v3.AuthMePlayer;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * AuthMe 查询的异步加载器。
+ * <p>
+ * 同一玩家（或同一 IP）同时只有一个查询在进行：并发的请求共享同一个 {@link CompletableFuture}，
+ * 例如计分板、Tab 与聊天同时请求同一玩家时数据库只收到一次查询。
+ * </p>
+ * <p>
+ * 查询在独立的工作线程上执行，同时进行的查询数不超过 {@code authme.workers}，
+ * 避免启动或重载时的批量预加载占满 AuthMe 的数据库连接池。
+ * Java 21 及以上使用虚拟线程（通过反射获取，仍以 Java 8 编译），否则使用固定大小的线程池。
+ * </p>
+ */
+final class AuthMeLoader {
+
+    private final ExecutorService executor;
+    /** 限制同时进行的查询数；虚拟线程没有数量上限，需要在任务内限流 */
+    private final Semaphore permits;
+    private final boolean virtual;
+
+    private final Map<String, CompletableFuture<Optional<AuthMePlayer>>> players = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<List<String>>> addresses = new ConcurrentHashMap<>();
+    /** 只有一个键（空字符串）：全部账号名称 */
+    private final Map<String, CompletableFuture<List<String>>> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * @param workers 同时进行的最大查询数
+     */
+    AuthMeLoader(int workers) {
+        int size = Math.max(1, workers);
+        ExecutorService created = virtualExecutor();
+        this.virtual = created != null;
+        this.executor = created != null ? created : platformExecutor(size);
+        this.permits = new Semaphore(size);
+    }
+
+    /** @return 是否使用虚拟线程 */
+    boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * 加载玩家信息，同一玩家的并发请求共享一次查询。
+     *
+     * @param name 玩家名称，大小写不敏感（AuthMe 按小写名称查询）
+     * @return 查询结果；熔断器拒绝或查询失败时以对应异常完成
+     */
+    CompletableFuture<Optional<AuthMePlayer>> playerInfo(String name) {
+        return load(players, name.toLowerCase(Locale.ROOT), key -> AuthMe.source().playerInfo(key));
+    }
+
+    /**
+     * 加载使用该 IP 的账号列表，同一 IP 的并发请求共享一次查询。
+     *
+     * @param ip IP 地址
+     * @return 查询结果；熔断器拒绝或查询失败时以对应异常完成
+     */
+    CompletableFuture<List<String>> namesByIp(String ip) {
+        return load(addresses, ip, key -> AuthMe.source().namesByIp(key));
+    }
+
+    /**
+     * 加载全部已注册账号的名称，并发请求共享一次查询。
+     *
+     * @return 查询结果；熔断器拒绝或查询失败时以对应异常完成
+     */
+    CompletableFuture<List<String>> registeredNames() {
+        return load(accounts, "", key -> AuthMe.source().registeredNames());
+    }
+
+    /**
+     * 在工作线程上执行不需要许可的短任务（例如写入 {@link RegistrationStore}）；加载器已关闭时丢弃。
+     *
+     * @param task 任务
+     */
+    void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ignored) {
+            // 扩展正在停止
+        }
+    }
+
+    private <V> CompletableFuture<V> load(Map<String, CompletableFuture<V>> inFlight, String key, Function<String, V> query) {
+        CompletableFuture<V> existing = inFlight.get(key);
+        if (existing != null) return existing;
+        CompletableFuture<V> created = new CompletableFuture<>();
+        existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) return existing;
+        try {
+            executor.execute(() -> run(inFlight, key, created, query));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    private <V> void run(Map<String, CompletableFuture<V>> inFlight, String key, CompletableFuture<V> future,
+                         Function<String, V> query) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            return;
+        }
+        try {
+            V value = query.apply(key);
+            // 先移除再完成：完成之后到来的请求（例如注册事件触发的刷新）会重新查询，而不是拿到旧结果
+            inFlight.remove(key, future);
+            future.complete(value);
+        } catch (Throwable t) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(t);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /** 停止工作线程，尚未开始的查询以取消结束 */
+    void close() {
+        executor.shutdownNow();
+        players.values().forEach(future -> future.cancel(false));
+        addresses.values().forEach(future -> future.cancel(false));
+        accounts.values().forEach(future -> future.cancel(false));
+        players.clear();
+        addresses.clear();
+        accounts.clear();
+    }
+
+    /** @return Java 21 的虚拟线程执行器，运行时不支持时返回 {@code null} */
+    private static ExecutorService virtualExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService platformExecutor(int size) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "mut-authme-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+}
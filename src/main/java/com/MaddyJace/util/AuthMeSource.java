@@ -0,0 +1,83 @@
+package com.MaddyJace.util;
+
+import fr.xephi.authme.api.v3.AuthMeApi;
+import fr.xephi.authme.api.v3.AuthMePlayer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * AuthMe 数据的查询入口。
+ * <p>
+ * {@link AuthMe}、{@link AuthMeCache}、{@link AuthMeIpIndex} 的所有查询都经过这里，
+ * 默认实现 {@link #API} 直接调用 {@link AuthMeApi}；基准测试等离线环境可以通过
+ * {@link AuthMe#setSource(AuthMeSource)} 替换为桩实现。
+ * </p>
+ * <p>AuthMe 未安装时绑定 {@link #NONE}，见 {@link Capabilities}。</p>
+ */
+interface AuthMeSource {
+
+    /** 直接调用 {@link AuthMeApi} 的实现 */
+    AuthMeSource API = new AuthMeSource() {
+        @Override
+        public Optional<AuthMePlayer> playerInfo(String name) {
+            return AuthMeApi.getInstance().getPlayerInfo(name);
+        }
+
+        @Override
+        public List<String> namesByIp(String ip) {
+            return AuthMeApi.getInstance().getNamesByIp(ip);
+        }
+
+        @Override
+        public List<String> registeredNames() {
+            return AuthMeApi.getInstance().getRegisteredNames();
+        }
+    };
+
+    /** AuthMe 未安装时的实现：所有玩家都未注册，不引用任何 AuthMe 类 */
+    AuthMeSource NONE = new AuthMeSource() {
+        @Override
+        public Optional<AuthMePlayer> playerInfo(String name) {
+            return Optional.empty();
+        }
+
+        @Override
+        public List<String> namesByIp(String ip) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<String> registeredNames() {
+            return Collections.emptyList();
+        }
+    };
+
+    /**
+     * @param name 玩家名称
+     * @return 玩家信息，未注册时为空
+     */
+    Optional<AuthMePlayer> playerInfo(String name);
+
+    /**
+     * @param ip IP 地址
+     * @return 使用该 IP 注册或登录过的账号列表
+     */
+    List<String> namesByIp(String ip);
+
+    /**
+     * @return 全部已注册账号的名称（小写），用于构建 {@link RegistrationIndex}
+     */
+    List<String> registeredNames();
+
+    /**
+     * 当前是否允许查询；返回 {@code false} 时调用方不应调度新的查询，继续使用旧值。
+     *
+     * @return 默认返回 {@code true}
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+}
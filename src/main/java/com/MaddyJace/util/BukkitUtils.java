@@ -1,11 +1,16 @@
 package com.MaddyJace.util;
 
 import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.Locale;
+import java.util.function.Function;
+
 /**
  * 玩家背包相关的工具类。
  * <p>
@@ -14,17 +19,182 @@ import org.bukkit.inventory.ItemStack;
  */
 public class BukkitUtils {
 
+    /** 背包状态跟踪器，扩展未启动时为 {@code null} */
+    private static volatile InventoryTracker tracker;
+    /** 在线玩家索引，扩展未启动时为 {@code null} */
+    private static volatile OnlineIndex onlineIndex;
+    /** 异步快照还没有发布时背包与主手物品占位符返回的文本 */
+    private static volatile String loadingText = "...";
+
+    /**
+     * 注册 {@code bukkit.*} 中与背包、在线状态相关的占位符。
+     * <p>
+     * {@code %mut_bukkit.count.<MATERIAL>%} 返回主背包中该材质的物品总数，
+     * {@code %mut_bukkit.freeCapacity.<MATERIAL>%} 返回还能放入的数量；材质在编译时解析。
+     * {@code %mut_bukkit.onlineCount%}、{@code %mut_bukkit.onlineCountWorld.<world>%}、
+     * {@code %mut_bukkit.onlineCountGroup.<group>%} 读取 {@link OnlineIndex}。
+     * 背包占位符在异步线程上第一次请求、快照还没有发布时返回 {@code inventory.loading-text}。
+     * </p>
+     *
+     * @param registry 占位符注册表
+     */
+    static void register(PlaceholderRegistry registry) {
+        registry.register("bukkit.emptySlots", 0, args -> player -> formatSummary(player, summary -> String.valueOf(summary.emptySlots())));
+        registry.register("bukkit.playerOnline", 1, args -> {
+            String name = args.get(0);
+            return player -> String.valueOf(isPlayerOnline(name));
+        });
+        registry.register("bukkit.onlineCount", 0, args -> player -> {
+            OnlineIndex index = onlineIndex;
+            return String.valueOf(index != null ? index.onlineCount() : Bukkit.getOnlinePlayers().size());
+        });
+        registry.register("bukkit.onlineCountWorld", 1, args -> {
+            String world = args.get(0);
+            return player -> {
+                OnlineIndex index = onlineIndex;
+                return String.valueOf(index != null ? index.worldCount(world) : 0);
+            };
+        });
+        registry.register("bukkit.onlineCountGroup", 1, args -> {
+            String group = args.get(0).toLowerCase(Locale.ROOT);
+            return player -> {
+                OnlineIndex index = onlineIndex;
+                return String.valueOf(index != null ? index.groupCount(group) : 0);
+            };
+        });
+        registry.register("bukkit.count", 1, args -> {
+            Material material = Material.matchMaterial(args.get(0));
+            if (material == null) return PlaceholderRegistry.INVALID;
+            Function<InventorySummary, String> count = summary -> String.valueOf(summary.count(material));
+            return player -> formatSummary(player, count);
+        });
+        registry.register("bukkit.freeCapacity", 1, args -> {
+            Material material = Material.matchMaterial(args.get(0));
+            if (material == null) return PlaceholderRegistry.INVALID;
+            Function<InventorySummary, String> freeCapacity = summary -> String.valueOf(summary.freeCapacity(material));
+            return player -> formatSummary(player, freeCapacity);
+        });
+    }
+
+    /**
+     * 启动背包状态跟踪器与在线玩家索引；服务端缺少跟踪器监听的事件时不启动跟踪器，背包数据改为直接读取。
+     *
+     * @param expansion 扩展实例，用于读取配置与注册监听器
+     */
+    static void start(ExpansionUtil expansion) {
+        stop();
+        ConfigurationSection settings = expansion.settings();
+        loadingText = settings.getString("inventory.loading-text", "...");
+        if (Capabilities.inventoryEvents()) {
+            InventoryTracker created = new InventoryTracker(settings.getLong("inventory.max-age-ticks", 20),
+                    settings.getBoolean("inventory.async-snapshots", true));
+            Bukkit.getPluginManager().registerEvents(created, expansion.host());
+            created.start(expansion.host());
+            tracker = created;
+        }
+
+        OnlineIndex index = new OnlineIndex(expansion.host(), settings.getLong("online.group-refresh-ticks", 100));
+        Bukkit.getPluginManager().registerEvents(index, expansion.host());
+        index.start();
+        onlineIndex = index;
+    }
+
+    /** 停止背包状态跟踪器与在线玩家索引 */
+    static void stop() {
+        InventoryTracker current = tracker;
+        tracker = null;
+        if (current != null) {
+            HandlerList.unregisterAll(current);
+            current.close();
+        }
+
+        OnlineIndex index = onlineIndex;
+        onlineIndex = null;
+        if (index != null) {
+            HandlerList.unregisterAll(index);
+            index.close();
+        }
+    }
+
+    /**
+     * 获取玩家背包的统计结果，跟踪器未启动时直接统计；批量求值期间同一玩家只读取一次。
+     *
+     * @param player 玩家对象
+     * @return 统计结果；异步快照还没有发布或玩家为 {@code null} 时为 {@code null}
+     */
+    static InventorySummary summary(Player player) {
+        if (player == null) return null;
+        EvaluationContext context = EvaluationContext.current(player);
+        if (context != null) return context.summary(() -> loadSummary(player));
+        return loadSummary(player);
+    }
+
+    private static InventorySummary loadSummary(Player player) {
+        InventoryTracker current = tracker;
+        return current != null ? current.summary(player) : InventorySummary.of(player.getInventory());
+    }
+
+    /**
+     * 获取玩家主手物品的快照，跟踪器未启动时直接读取；批量求值期间同一玩家只读取一次。
+     *
+     * @param player 玩家对象
+     * @return 主手物品快照；异步快照还没有发布或玩家为 {@code null} 时为 {@code null}
+     */
+    static HandItemSnapshot hand(Player player) {
+        if (player == null) return null;
+        EvaluationContext context = EvaluationContext.current(player);
+        if (context != null) return context.hand(() -> loadHand(player));
+        return loadHand(player);
+    }
+
+    private static HandItemSnapshot loadHand(Player player) {
+        InventoryTracker current = tracker;
+        return current != null ? current.hand(player) : HandItemSnapshot.of(Capabilities.itemInMainHand(player.getInventory()));
+    }
+
+    /**
+     * 按背包统计结果生成占位符文本。
+     *
+     * @param player 玩家对象，可为 {@code null}
+     * @param format 统计结果 -> 文本
+     * @return 文本；玩家为 {@code null}（控制台等）时返回 "-1"，异步快照还没有发布时返回 {@code inventory.loading-text}
+     */
+    static String formatSummary(Player player, Function<InventorySummary, String> format) {
+        if (player == null) return "-1";
+        InventorySummary summary = summary(player);
+        return summary != null ? format.apply(summary) : loadingText;
+    }
+
+    /**
+     * 按主手物品快照生成占位符文本。
+     *
+     * @param player 玩家对象，可为 {@code null}
+     * @param format 主手物品快照 -> 文本
+     * @return 文本；玩家为 {@code null}（控制台等）时返回 "-1"，异步快照还没有发布时返回 {@code inventory.loading-text}
+     */
+    static String formatHand(Player player, Function<HandItemSnapshot, String> format) {
+        if (player == null) return "-1";
+        HandItemSnapshot hand = hand(player);
+        return hand != null ? format.apply(hand) : loadingText;
+    }
+
     /**
      * 获取玩家主背包中的空格数量。
      * <p>
      * 仅统计主背包（槽位 0-35），不包括盔甲槽和副手槽。
      * 空格定义为该槽位的物品为 {@link Material#AIR} 或 {@code null}。
+     * 扩展启动后读取 {@link InventoryTracker} 缓存的结果，只在背包变化后重新统计。
      * </p>
      *
      * @param player 要检查背包的 {@link Player} 对象
-     * @return 玩家主背包中空格的数量
+     * @return 玩家主背包中空格的数量；异步快照还没有发布或玩家为 {@code null} 时返回 -1
      */
     public static int getEmptySlots(Player player) {
+        if (player == null) return -1;
+        if (tracker != null || EvaluationContext.current(player) != null) {
+            InventorySummary summary = summary(player);
+            return summary != null ? summary.emptySlots() : -1;
+        }
         int emptySlots = 0;
         Inventory inventory = player.getInventory();
         for (int slot = 0; slot < 36; slot++) {
@@ -34,8 +204,13 @@ public class BukkitUtils {
         return emptySlots;
     }
 
-    /** 通过字符串名称判断玩家是否在线！ */
+    /**
+     * 通过字符串名称判断玩家是否在线！
+     * <p>扩展启动后按完整名称（不区分大小写）在 {@link OnlineIndex} 中查找，可在任意线程调用。</p>
+     */
     public static boolean isPlayerOnline(String name) {
+        OnlineIndex index = onlineIndex;
+        if (index != null) return index.isOnline(name);
         Player player = Bukkit.getPlayer(name);
         if (player == null) return false;
         return player.isOnline();
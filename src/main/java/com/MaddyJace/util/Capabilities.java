@@ -0,0 +1,122 @@
+package com.MaddyJace.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.Locale;
+
+/**
+ * 服务器能力检测。
+ * <p>
+ * 在 {@link ExpansionUtil#canRegister()} 时检测一次依赖插件与服务端 API 是否可用，
+ * 各模块据此绑定实际实现或返回常量的空实现，调用路径上不再依赖捕获异常
+ * （缺少的类会抛出 {@link NoClassDefFoundError}，缺少的方法会抛出 {@link NoSuchMethodError}，
+ * 二者都不是 {@link Exception}）。
+ * </p>
+ * <p>检测之前 AuthMe 与 LuckPerms 视为不可用，服务端 API 视为编译时的版本（1.12）。</p>
+ */
+final class Capabilities {
+
+    private static volatile boolean authMe;
+    private static volatile boolean luckPerms;
+    /** {@code PlayerInventory#getItemInMainHand()}，1.9 起可用 */
+    private static volatile boolean mainHand = true;
+    /** {@code PlayerInventory#getStorageContents()}，1.9 起可用 */
+    private static volatile boolean storageContents = true;
+    /** {@code ItemMeta#hasLocalizedName()}，1.12 起可用，新版本中已移除 */
+    private static volatile boolean localizedName = true;
+    /** 背包跟踪器监听的事件（{@code EntityPickupItemEvent} 等），1.12 起可用 */
+    private static volatile boolean inventoryEvents = true;
+
+    private Capabilities() {}
+
+    /**
+     * 检测依赖插件与服务端 API，并输出检测结果。
+     *
+     * @param expansion 扩展实例，用于输出日志
+     */
+    static void detect(ExpansionUtil expansion) {
+        authMe = hasPlugin("AuthMe") && hasClass("fr.xephi.authme.api.v3.AuthMeApi");
+        luckPerms = hasPlugin("LuckPerms") && hasClass("net.luckperms.api.LuckPermsProvider");
+        mainHand = hasMethod(PlayerInventory.class, "getItemInMainHand");
+        storageContents = hasMethod(PlayerInventory.class, "getStorageContents");
+        localizedName = hasMethod(ItemMeta.class, "hasLocalizedName");
+        inventoryEvents = hasClass("org.bukkit.event.entity.EntityPickupItemEvent")
+                && hasClass("org.bukkit.event.player.PlayerSwapHandItemsEvent");
+        expansion.info(String.format(Locale.ROOT,
+                "Capabilities: authMe=%b, luckPerms=%b, mainHand=%b, storageContents=%b, localizedName=%b, inventoryEvents=%b",
+                authMe, luckPerms, mainHand, storageContents, localizedName, inventoryEvents));
+    }
+
+    /** @return AuthMe 已安装且 API 可加载 */
+    static boolean authMe() {
+        return authMe;
+    }
+
+    /** @return LuckPerms 已安装且 API 可加载 */
+    static boolean luckPerms() {
+        return luckPerms;
+    }
+
+    /** @return 背包跟踪器需要的事件是否存在 */
+    static boolean inventoryEvents() {
+        return inventoryEvents;
+    }
+
+    /**
+     * 获取主手物品，1.9 之前的服务端读取唯一的手持物品。
+     *
+     * @param inventory 玩家背包
+     * @return 主手物品，可能为 {@code null}
+     */
+    @SuppressWarnings("deprecation")
+    static ItemStack itemInMainHand(PlayerInventory inventory) {
+        return mainHand ? inventory.getItemInMainHand() : inventory.getItemInHand();
+    }
+
+    /**
+     * 获取主背包的物品，1.9 之前的服务端读取全部物品（此时只包含主背包的 36 格）。
+     *
+     * @param inventory 玩家背包
+     * @return 物品数组，前 36 格为主背包，元素可能为 {@code null}
+     */
+    static ItemStack[] storageContents(PlayerInventory inventory) {
+        return storageContents ? inventory.getStorageContents() : inventory.getContents();
+    }
+
+    /**
+     * 获取物品的本地化名称。
+     *
+     * @param meta 物品元数据
+     * @return 本地化名称；没有设置或服务端不支持时返回 {@code null}
+     */
+    @SuppressWarnings("deprecation")
+    static String localizedName(ItemMeta meta) {
+        return localizedName && meta.hasLocalizedName() ? meta.getLocalizedName() : null;
+    }
+
+    private static boolean hasPlugin(String name) {
+        return Bukkit.getPluginManager().getPlugin(name) != null;
+    }
+
+    private static boolean hasClass(String name) {
+        try {
+            Class.forName(name, false, Capabilities.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static boolean hasMethod(Class<?> type, String name) {
+        try {
+            type.getMethod(name);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+}
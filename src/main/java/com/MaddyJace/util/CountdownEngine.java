@@ -0,0 +1,201 @@
+package com.MaddyJace.util;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 倒计时目标引擎。
+ * <p>
+ * {@link TimeUtils} 的倒计时目标（当天/次日的某个时间、下一个星期几、下个月某一天）
+ * 最多每天变化一次，没有必要每次请求都重新构建日期对象。
+ * 本类把每个目标解析为一个纪元毫秒时间点并缓存，同时记录该目标的失效时间点；
+ * 失效之前每次请求只需一次与 {@link System#currentTimeMillis()} 的减法。
+ * </p>
+ * <p>
+ * 目标时间点通过 {@link ZonedDateTime} 解析，夏令时切换当天的时长按真实经过的时间计算；
+ * 目标时间落在夏令时跳过的区间内时顺延到跳变之后。
+ * 时区可以通过 {@link #setZone(ZoneId)} 配置，修改时区后所有目标会重新解析。
+ * </p>
+ */
+public final class CountdownEngine {
+
+    /** 最多缓存的目标数，超出后整体清空 */
+    private static final int MAX_TARGETS = 256;
+
+    private static volatile ZoneId zone = ZoneId.systemDefault();
+
+    private static final Map<String, Countdown> TARGETS = new ConcurrentHashMap<>();
+
+    private CountdownEngine() {}
+
+    /** @return 当前使用的时区 */
+    public static ZoneId zone() {
+        return zone;
+    }
+
+    /**
+     * 设置倒计时使用的时区，已缓存的目标会在下一次请求时重新解析。
+     *
+     * @param zoneId 时区，为 {@code null} 时使用系统默认时区
+     */
+    public static void setZone(ZoneId zoneId) {
+        zone = zoneId == null ? ZoneId.systemDefault() : zoneId;
+    }
+
+    /**
+     * 当天（或次日）指定时间的倒计时。
+     * <p>当天的目标时间已过去时，目标改为当天 23:59:59。</p>
+     *
+     * @param time       目标时间
+     * @param isTomorrow 是否以次日为目标
+     * @return 倒计时
+     */
+    public static Countdown days(LocalTime time, boolean isTomorrow) {
+        return lookup("D" + isTomorrow + time, () -> new Countdown(isTomorrow ? Kind.TOMORROW : Kind.TODAY, time, 0));
+    }
+
+    /**
+     * 下一个指定星期几的倒计时（不包含今天）。
+     *
+     * @param time 目标时间
+     * @param week 目标星期几（1=星期一，7=星期日），超出范围时按星期一计算
+     * @return 倒计时
+     */
+    public static Countdown weeks(LocalTime time, int week) {
+        int day = (week >= 1 && week <= 7) ? week : 1;
+        return lookup("W" + day + time, () -> new Countdown(Kind.WEEK, time, day));
+    }
+
+    /**
+     * 下个月指定日期的倒计时。
+     *
+     * @param time       目标时间
+     * @param dayOfMonth 目标日期，超出该月最大天数时取最大天
+     * @return 倒计时
+     */
+    public static Countdown months(LocalTime time, int dayOfMonth) {
+        return lookup("M" + dayOfMonth + time, () -> new Countdown(Kind.MONTH, time, dayOfMonth));
+    }
+
+    private static Countdown lookup(String key, Supplier<Countdown> factory) {
+        Countdown countdown = TARGETS.get(key);
+        if (countdown == null) {
+            if (TARGETS.size() >= MAX_TARGETS) TARGETS.clear();
+            countdown = TARGETS.computeIfAbsent(key, k -> factory.get());
+        }
+        return countdown;
+    }
+
+    private enum Kind { TODAY, TOMORROW, WEEK, MONTH }
+
+    /**
+     * 单个倒计时目标，解析结果以不可变对象发布，可在任意线程读取。
+     */
+    public static final class Countdown {
+
+        private final Kind kind;
+        private final LocalTime time;
+        private final int param;
+        private volatile Target target;
+
+        private Countdown(Kind kind, LocalTime time, int param) {
+            this.kind = kind;
+            this.time = time;
+            this.param = param;
+        }
+
+        /**
+         * 计算距离目标的剩余毫秒数。
+         *
+         * @param now 当前时间（纪元毫秒）
+         * @return 剩余毫秒数，目标已过去时为负数
+         */
+        public long remainingMillis(long now) {
+            return current(now).at - now;
+        }
+
+        /**
+         * 获取当前目标的失效时间点：到达该时间点后目标会改变（例如跨过午夜后改为次日），
+         * 由剩余时间推算出的结果不能沿用到该时间点之后。
+         *
+         * @param now 当前时间（纪元毫秒）
+         * @return 失效时间点（纪元毫秒）
+         */
+        public long validUntil(long now) {
+            return current(now).validUntil;
+        }
+
+        /** @return 距离目标的剩余毫秒数 */
+        public long remainingMillis() {
+            return remainingMillis(System.currentTimeMillis());
+        }
+
+        private Target current(long now) {
+            Target current = target;
+            ZoneId currentZone = zone;
+            if (current == null || now >= current.validUntil || current.zone != currentZone) {
+                current = resolve(now, currentZone);
+                target = current;
+            }
+            return current;
+        }
+
+        private Target resolve(long now, ZoneId zoneId) {
+            LocalDate today = Instant.ofEpochMilli(now).atZone(zoneId).toLocalDate();
+            long tomorrow = startOfDay(today.plusDays(1), zoneId);
+            switch (kind) {
+                case TODAY: {
+                    long at = epochMillis(today, time, zoneId);
+                    // 目标时间过去之前有效，过去之后改为当天 23:59:59 直到次日
+                    if (at > now) return new Target(at, at, zoneId);
+                    return new Target(epochMillis(today, LocalTime.of(23, 59, 59), zoneId), tomorrow, zoneId);
+                }
+                case TOMORROW:
+                    return new Target(epochMillis(today.plusDays(1), time, zoneId), tomorrow, zoneId);
+                case WEEK: {
+                    // 到达目标日期当天时，“下一个星期几”会跳到下周
+                    LocalDate date = today.with(TemporalAdjusters.next(DayOfWeek.of(param)));
+                    return new Target(epochMillis(date, time, zoneId), startOfDay(date, zoneId), zoneId);
+                }
+                case MONTH:
+                default: {
+                    LocalDate month = today.plusMonths(1);
+                    LocalDate date = month.withDayOfMonth(Math.max(1, Math.min(param, month.lengthOfMonth())));
+                    long validUntil = startOfDay(today.withDayOfMonth(1).plusMonths(1), zoneId);
+                    return new Target(epochMillis(date, time, zoneId), validUntil, zoneId);
+                }
+            }
+        }
+
+        private static long epochMillis(LocalDate date, LocalTime time, ZoneId zoneId) {
+            return ZonedDateTime.of(date, time, zoneId).toInstant().toEpochMilli();
+        }
+
+        private static long startOfDay(LocalDate date, ZoneId zoneId) {
+            return date.atStartOfDay(zoneId).toInstant().toEpochMilli();
+        }
+    }
+
+    /** 已解析的目标：目标时间点、失效时间点与解析时使用的时区 */
+    private static final class Target {
+
+        private final long at;
+        private final long validUntil;
+        private final ZoneId zone;
+
+        private Target(long at, long validUntil, ZoneId zone) {
+            this.at = at;
+            this.validUntil = validUntil;
+            this.zone = zone;
+        }
+    }
+
+}
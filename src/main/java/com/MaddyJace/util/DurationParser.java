@@ -1,37 +1,236 @@
 package com.MaddyJace.util;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import net.luckperms.api.LuckPermsProvider;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 时长字符串解析工具。
+ * <p>
+ * 解析形如 {@code 1y 2mo 3w 4d 5h 6m 7s} 的时长（LuckPerms 过期时间的格式），
+ * 数字与单位之间允许有空白。解析为一次线性扫描，不使用正则、不创建中间对象；
+ * 最近出现过的字符串的结果会被缓存（LuckPerms 的过期时间字符串重复率很高）。
+ * </p>
+ * <p>单位换算：y = 365 天，mo = 30 天，w = 7 天。</p>
+ */
 public class DurationParser {
 
+    /** 最多缓存的字符串数，超出后整体清空 */
+    private static final int MAX_CACHED = 256;
+
+    /** 原始字符串 -> 总秒数（-1 表示无法解析） */
+    private static final Map<String, Long> CACHE = new ConcurrentHashMap<>();
+
+    /** 过期时间的直接提供者，为 {@code null} 时通过 PlaceholderAPI 解析字符串 */
+    private static volatile ExpiryProvider expiryProvider;
+    private static LuckPermsExpiryProvider luckPermsProvider;
+
+    /**
+     * 注册 {@code luckPermsExpiryTime} 占位符。
+     * <p>
+     * {@code %mut_luckPermsExpiryTime."{...}"%} 返回四舍五入后的天数，
+     * {@code %mut_luckPermsExpiryTime."{...}".hour%} 返回指定单位（向下取整）。
+     * 已启用 {@link ExpiryProvider} 时直接读取过期时间，否则解析嵌套占位符返回的字符串。
+     * </p>
+     *
+     * @param registry 占位符注册表
+     */
+    static void register(PlaceholderRegistry registry) {
+        registry.register("luckPermsExpiryTime", 0, args -> {
+            if (args.isEmpty()) return player -> "-1";
+            String placeholder = args.get(0).replace("{", "%");
+            String name = placeholderName(args.get(0));
+            if (args.size() < 2) {
+                return player -> {
+                    long seconds = expirySeconds(player, name, placeholder);
+                    return String.valueOf(seconds < 0 ? -1 : Math.round(seconds / 86400.0));
+                };
+            }
+            TimeUtils.Unit unit = TimeUtils.Unit.parse(args.get(1));
+            if (unit == null) return player -> "-1";
+            return player -> {
+                long seconds = expirySeconds(player, name, placeholder);
+                return String.valueOf(seconds < 0 ? -1 : unit.convert(seconds * 1000L));
+            };
+        });
+    }
+
+    /**
+     * 启用 LuckPerms 直接提供者（LuckPerms 已安装且配置项 {@code luckperms.native-expiry} 为 true 时）。
+     *
+     * @param expansion 扩展实例，用于读取配置与注册监听器
+     */
+    static void start(ExpansionUtil expansion) {
+        if (!expansion.settings().getBoolean("luckperms.native-expiry", true)) return;
+        if (!Capabilities.luckPerms()) return;
+        try {
+            LuckPermsExpiryProvider provider = new LuckPermsExpiryProvider(LuckPermsProvider.get());
+            provider.subscribe(expansion.host());
+            Bukkit.getPluginManager().registerEvents(provider, expansion.host());
+            luckPermsProvider = provider;
+            expiryProvider = provider;
+        } catch (IllegalStateException | LinkageError e) {
+            expansion.warning("LuckPerms API is not available, luckPermsExpiryTime falls back to placeholder parsing.");
+        }
+    }
+
+    /** 停用 LuckPerms 直接提供者 */
+    static void stop() {
+        expiryProvider = null;
+        if (luckPermsProvider != null) {
+            HandlerList.unregisterAll(luckPermsProvider);
+            luckPermsProvider.close();
+            luckPermsProvider = null;
+        }
+    }
+
+    /**
+     * 设置过期时间提供者，传入 {@code null} 时始终使用字符串解析。
+     *
+     * @param provider 过期时间提供者
+     */
+    public static void setExpiryProvider(ExpiryProvider provider) {
+        expiryProvider = provider;
+    }
+
+    /**
+     * 获取嵌套占位符的剩余秒数，优先使用直接提供者。
+     *
+     * @param player      玩家对象
+     * @param name        嵌套占位符名称
+     * @param placeholder 交给 PlaceholderAPI 解析的完整占位符
+     * @return 剩余秒数，无法解析时返回 -1
+     */
+    private static long expirySeconds(Player player, String name, String placeholder) {
+        ExpiryProvider provider = expiryProvider;
+        if (provider != null) {
+            long seconds = provider.remainingSeconds(player, name);
+            if (seconds != ExpiryProvider.UNSUPPORTED) return seconds;
+        }
+        return parseToSeconds(Template.setPlaceholders(player, placeholder));
+    }
+
+    /** 去掉嵌套占位符两端的花括号与百分号，得到 LuckPerms 占位符名称 */
+    private static String placeholderName(String arg) {
+        int start = 0;
+        int end = arg.length();
+        while (start < end && isDelimiter(arg.charAt(start))) start++;
+        while (end > start && isDelimiter(arg.charAt(end - 1))) end--;
+        return arg.substring(start, end);
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c == '{' || c == '}' || c == '%';
+    }
+
+    /**
+     * 将时长字符串解析为天数（四舍五入）。
+     *
+     * @param input 时长字符串，例如 "1w 2d 3h"
+     * @return 天数，无法解析时返回 -1
+     */
     public static long parseToDays(String input) {
+        long totalSeconds = parseToSeconds(input);
+        if (totalSeconds < 0) {
+            return -1;
+        }
+        return Math.round(totalSeconds / 86400.0);
+    }
 
-        if (input == null || input.trim().isEmpty()) {
+    /**
+     * 将时长字符串换算为指定单位（向下取整）。
+     *
+     * @param input 时长字符串
+     * @param unit  目标单位，支持 {@link TimeUtils.Unit} 的全部单位
+     * @return 换算后的数值，无法解析时返回 -1
+     */
+    public static long parse(String input, TimeUtils.Unit unit) {
+        long totalSeconds = parseToSeconds(input);
+        if (totalSeconds < 0) {
             return -1;
         }
-        Pattern p = Pattern.compile("(\\d+)\\s*(y|mo|w|d|h|m|s)");
-        Matcher m = p.matcher(input);
+        return unit.convert(totalSeconds * 1000L);
+    }
+
+    /**
+     * 将时长字符串解析为总秒数，结果会被缓存。
+     *
+     * @param input 时长字符串
+     * @return 总秒数，无法解析时返回 -1
+     */
+    public static long parseToSeconds(String input) {
+        if (input == null) {
+            return -1;
+        }
+        Long cached = CACHE.get(input);
+        if (cached != null) {
+            return cached;
+        }
+        long totalSeconds = scan(input);
+        if (CACHE.size() >= MAX_CACHED) CACHE.clear();
+        CACHE.put(input, totalSeconds);
+        return totalSeconds;
+    }
+
+    /**
+     * 单次扫描解析，语义与正则 {@code (\d+)\s*(y|mo|w|d|h|m|s)} 逐个匹配相同。
+     */
+    private static long scan(String input) {
+        int length = input.length();
         long totalSeconds = 0;
         boolean found = false;
-        while (m.find()) {
-            found = true;
-            long value = Long.parseLong(m.group(1));
-            String unit = m.group(2);
-            switch (unit) {
-                case "y":  totalSeconds += value * 365L * 24 * 3600; break;
-                case "mo": totalSeconds += value * 30L  * 24 * 3600; break;
-                case "w":  totalSeconds += value * 7L   * 24 * 3600; break;
-                case "d":  totalSeconds += value * 24L  * 3600; break;
-                case "h":  totalSeconds += value * 3600L; break;
-                case "m":  totalSeconds += value * 60L; break;
-                case "s":  totalSeconds += value; break;
+        int i = 0;
+        while (i < length) {
+            if (!isDigit(input.charAt(i))) {
+                i++;
+                continue;
             }
+            long value = 0;
+            while (i < length && isDigit(input.charAt(i))) {
+                value = value > Long.MAX_VALUE / 10 ? Long.MAX_VALUE : value * 10 + (input.charAt(i) - '0');
+                i++;
+            }
+            int j = i;
+            while (j < length && isWhitespace(input.charAt(j))) j++;
+            if (j >= length) break;
+
+            long seconds;
+            int next = j + 1;
+            switch (input.charAt(j)) {
+                case 'y': seconds = 365L * 24 * 3600; break;
+                case 'w': seconds = 7L   * 24 * 3600; break;
+                case 'd': seconds = 24L  * 3600; break;
+                case 'h': seconds = 3600L; break;
+                case 's': seconds = 1L; break;
+                case 'm':
+                    if (next < length && input.charAt(next) == 'o') {
+                        seconds = 30L * 24 * 3600;
+                        next++;
+                    } else {
+                        seconds = 60L;
+                    }
+                    break;
+                default:
+                    // 数字后没有单位，从数字之后继续查找
+                    continue;
+            }
+            found = true;
+            totalSeconds += value * seconds;
+            i = next;
         }
-        if (!found) {
-            return -1;
-        }
-        return Math.round(totalSeconds / 86400.0);
+        return found ? totalSeconds : -1;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
 
 }
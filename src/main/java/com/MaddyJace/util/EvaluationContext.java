@@ -0,0 +1,93 @@
+package com.MaddyJace.util;
+
+import fr.xephi.authme.api.v3.AuthMePlayer;
+import org.bukkit.entity.Player;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 一次批量求值期间共享的玩家数据。
+ * <p>
+ * {@link ExpansionUtil#evaluate(Player, java.util.List)} 在当前线程上打开一个上下文，
+ * 期间同一玩家的背包统计、主手物品快照与 AuthMe 信息各只读取一次，
+ * 之后同一批次中的其它占位符直接复用。没有批量求值进行时，{@link #current(Player)}
+ * 只有一次原子变量读取的开销。
+ * </p>
+ */
+final class EvaluationContext {
+
+    private static final ThreadLocal<EvaluationContext> CURRENT = new ThreadLocal<>();
+    /** 所有线程上打开的上下文数量，为 0 时跳过 ThreadLocal 查找 */
+    private static final AtomicInteger OPEN = new AtomicInteger();
+
+    private final UUID player;
+    private final EvaluationContext previous;
+
+    private InventorySummary summary;
+    private HandItemSnapshot hand;
+    private Optional<AuthMePlayer> authMe;
+    private boolean authMeLoaded;
+
+    private EvaluationContext(UUID player, EvaluationContext previous) {
+        this.player = player;
+        this.previous = previous;
+    }
+
+    /**
+     * 在当前线程上为玩家打开上下文，可以嵌套。
+     *
+     * @param player 玩家对象
+     * @return 上下文，使用完毕后必须关闭
+     */
+    static EvaluationContext open(Player player) {
+        EvaluationContext context = new EvaluationContext(player.getUniqueId(), CURRENT.get());
+        CURRENT.set(context);
+        OPEN.incrementAndGet();
+        return context;
+    }
+
+    /**
+     * 获取当前线程上属于该玩家的上下文。
+     *
+     * @param player 玩家对象，可为 {@code null}
+     * @return 上下文；没有打开或属于其它玩家时返回 {@code null}
+     */
+    static EvaluationContext current(Player player) {
+        if (OPEN.get() == 0 || player == null) return null;
+        EvaluationContext context = CURRENT.get();
+        return context != null && context.player.equals(player.getUniqueId()) ? context : null;
+    }
+
+    InventorySummary summary(Supplier<InventorySummary> loader) {
+        if (summary == null) summary = loader.get();
+        return summary;
+    }
+
+    HandItemSnapshot hand(Supplier<HandItemSnapshot> loader) {
+        if (hand == null) hand = loader.get();
+        return hand;
+    }
+
+    /** AuthMe 信息可能为 {@code null}（首次加载未完成），同样只读取一次 */
+    Optional<AuthMePlayer> authMe(Supplier<Optional<AuthMePlayer>> loader) {
+        if (!authMeLoaded) {
+            authMe = loader.get();
+            authMeLoaded = true;
+        }
+        return authMe;
+    }
+
+    /** 关闭上下文，恢复外层上下文 */
+    void close() {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+        OPEN.decrementAndGet();
+    }
+
+}
@@ -1,14 +1,22 @@
 package com.MaddyJace.util;
 
-import me.clip.placeholderapi.PlaceholderAPI;
+import me.clip.placeholderapi.expansion.Cacheable;
+import me.clip.placeholderapi.expansion.Configurable;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
+import me.clip.placeholderapi.expansion.Taskable;
 import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * PlaceholderAPI 扩展类 —— {@code %mut_*%}。
@@ -47,23 +55,66 @@ import java.util.regex.Pattern;
  *     %mut_authMe.listNameByIp.","%                       # 获取已登录账号列表
  *     %mut_authMe.getUserCountByIp%                       # 获取已登录账户数量
  *     %mut_authMe.registered%                             # 是否已注册
+ *     %mut_authMe.breaker%                                # 熔断器状态: CLOSED, OPEN, HALF_OPEN
+ *     %mut_authMe.breaker.rejected%                       # 熔断器计数: calls, slow, errors, rejected, failures
+ *     %mut_authMe.registrationRank%                       # 注册排名(第 N 个注册的账号)
+ *     %mut_authMe.registeredSince.day.7%                  # 最近 7 天内注册的账号数
  *
  *     ─ Bukkit API
  *     %mut_bukkit.emptySlots% # 背包空格(不包括装备栏和副手)
  *     %mut_bukkit.playerOnline.[playerName]% # 玩家在线
+ *     %mut_bukkit.onlineCount%               # 在线人数
+ *     %mut_bukkit.onlineCountWorld.[world]%  # 指定世界的在线人数
+ *     %mut_bukkit.onlineCountGroup.[group]%  # 拥有 group.[group] 权限的在线人数
+ *     %mut_bukkit.count.DIAMOND%        # 主背包中该材质的物品总数
+ *     %mut_bukkit.freeCapacity.DIAMOND% # 主背包还能放入该材质的数量
  *     %mut_bukkit.itemInHand%            主手物品材质
  *     %mut_bukkit.itemInHandName%       # 主手物品名称(本地化)
  *     %mut_bukkit.itemInHandCustomName% # 主手物品自定义名称(本地化)
  *     %mut_bukkit.itemInHandAmount%     # 主手物品数量
  *     %mut_bukkit.itemInHandEnchanted%  # 主手物品是否为附魔
+ *     %mut_bukkit.itemInHandDurability%    # 主手物品剩余耐久
+ *     %mut_bukkit.itemInHandMaxDurability% # 主手物品最大耐久
+ *     %mut_bukkit.itemInHandEnchantmentCount% # 主手物品附魔数量
+ *     %mut_bukkit.itemInHandEnchantments.", "% # 主手物品附魔列表(名称:等级)
  *
  *     - LuckPerms
  *     %mut_luckPermsExpiryTime."{}"% # 把LuckPerms过期时间解析为天(四舍五入)
+ *     %mut_luckPermsExpiryTime."{}".hour% # 解析为指定单位: milli, second, minute, hour, day, month, year
+ *
+ *     - 调用统计(需开启 metrics.enabled)
+ *     %mut_stats.p99.authMe.registered% # 字段: calls, main, async, avg, p50, p99, max(耗时单位为微秒)
+ *     %mut_stats.avg.authMe.api%        # AuthMe 查询耗时
+ *     %mut_stats.planHitRatio%          # 计划缓存命中率(百分比)
+ *
+ *     - 缓存任意占位符
+ *     %mut_cache.30.player."{vault_eco_balance}"% # 每名玩家 30 秒内只解析一次, 有效期可写为 30s、5m、1h30m
+ *     %mut_cache.5m.global."{server_tps_1}"%      # 全服共用一份结果
+ *     %mut_cache.stats.ratio.30.player."{vault_eco_balance}"% # 字段: hits, misses, ratio(百分比), 有效期与范围同上
  *
  * </pre>
  */
 @SuppressWarnings("unused")
-public class ExpansionUtil extends PlaceholderExpansion {
+public class ExpansionUtil extends PlaceholderExpansion implements Cacheable, Configurable, Taskable {
+
+    /** 已编译计划的最大缓存数量，超出后淘汰旧计划 */
+    private static final int MAX_PLANS = 1024;
+
+    /** 占位符参数 -> 已编译的执行计划 */
+    private final Map<String, PlaceholderPlan> plans = new ConcurrentHashMap<>();
+
+    /** 各功能模块注册的子占位符 */
+    private final PlaceholderRegistry registry = new PlaceholderRegistry();
+
+    public ExpansionUtil() {
+        TimeUtils.register(registry);
+        AuthMe.register(registry);
+        BukkitUtils.register(registry);
+        ItemUtils.register(registry);
+        DurationParser.register(registry);
+        PlaceholderStats.register(registry);
+        PlaceholderCache.register(registry);
+    }
 
     /**
      * 获取该 Placeholder 的唯一标识符。
@@ -96,6 +147,100 @@ public class ExpansionUtil extends PlaceholderExpansion {
         return "1.0.0";
     }
 
+    /**
+     * 注册前由 PlaceholderAPI 调用，检测依赖插件与服务端 API 并绑定对应的实现。
+     * <p>依赖缺失时相关占位符返回常量，不会阻止扩展注册。</p>
+     *
+     * @return 始终返回 {@code true}
+     */
+    @Override
+    public boolean canRegister() {
+        Capabilities.detect(this);
+        AuthMe.setSource(Capabilities.authMe() ? AuthMeSource.API : AuthMeSource.NONE);
+        return true;
+    }
+
+    /**
+     * 扩展的默认配置，写入 PlaceholderAPI 的 {@code config.yml}（{@code expansions.mut.*}）。
+     *
+     * @return 配置项与默认值
+     */
+    @Override
+    public Map<String, Object> getDefaults() {
+        Map<String, Object> defaults = new LinkedHashMap<>();
+        defaults.put("time.zone", "");
+        defaults.put("authme.cache-ttl-seconds", 300);
+        defaults.put("authme.loading-text", "...");
+        defaults.put("authme.workers", 4);
+        defaults.put("authme.registration-store", true);
+        defaults.put("authme.breaker.enabled", true);
+        defaults.put("authme.breaker.slow-call-millis", 250);
+        defaults.put("authme.breaker.failure-threshold", 5);
+        defaults.put("authme.breaker.window-seconds", 30);
+        defaults.put("authme.breaker.open-seconds", 30);
+        defaults.put("luckperms.native-expiry", true);
+        defaults.put("inventory.max-age-ticks", 20);
+        defaults.put("inventory.async-snapshots", true);
+        defaults.put("inventory.loading-text", "...");
+        defaults.put("online.group-refresh-ticks", 100);
+        defaults.put("metrics.enabled", false);
+        defaults.put("metrics.log-interval-seconds", 300);
+        defaults.put("cache.max-entries", 4096);
+        defaults.put("cache.loading-text", "...");
+        return defaults;
+    }
+
+    /**
+     * 各模块调度任务、注册监听器与存放数据文件时使用的插件。
+     * <p>默认为 PlaceholderAPI；负载模拟器在没有 PlaceholderAPI 的环境中替换为桩实现。</p>
+     *
+     * @return 宿主插件
+     */
+    Plugin host() {
+        return getPlaceholderAPI();
+    }
+
+    /**
+     * 各模块读取配置的入口，即 PlaceholderAPI 配置中的 {@code expansions.mut} 节点。
+     * <p>节点不存在时返回空配置，各项取默认值；负载模拟器替换为内存中的配置。</p>
+     *
+     * @return 配置节点
+     */
+    ConfigurationSection settings() {
+        ConfigurationSection section = getConfigSection();
+        return section != null ? section : new MemoryConfiguration();
+    }
+
+    /**
+     * 扩展注册完成后由 PlaceholderAPI 调用，启动各模块的缓存与监听器。
+     */
+    @Override
+    public void start() {
+        TickClock.start(host());
+        PlaceholderMemo.start(this);
+        TimeUtils.start(this);
+        AuthMe.start(this);
+        BukkitUtils.start(this);
+        DurationParser.start(this);
+        PlaceholderStats.start(this);
+        PlaceholderCache.start(this);
+    }
+
+    /**
+     * 扩展卸载时由 PlaceholderAPI 调用，停止各模块的缓存与监听器。
+     */
+    @Override
+    public void stop() {
+        // 与启动顺序相反，后启动的模块可能包装了先启动模块的查询入口
+        PlaceholderCache.stop();
+        PlaceholderStats.stop();
+        DurationParser.stop();
+        BukkitUtils.stop();
+        AuthMe.stop();
+        PlaceholderMemo.stop();
+        TickClock.stop();
+    }
+
     /**
      * 当 Placeholder 被调用时执行。
      * <p>
@@ -108,99 +253,132 @@ public class ExpansionUtil extends PlaceholderExpansion {
      * </ul>
      *
      * <p>支持通过引号避免参数中 “.” 被错误分割。</p>
+     * <p>每个参数字符串只在首次请求时通过 {@link #compile(String)} 编译，
+     * 之后的请求只需一次缓存查找与一次计划调用。</p>
      *
      * @param player     请求该占位符的玩家对象，可为 {@code null}
      * @param identifier 占位符参数，例如 {@code diffDays.second."HH:mm:ss".true}
      * @return 替换结果字符串；若参数无效则返回提示信息
      */
-    @SuppressWarnings("SpellCheckingInspection")
     @Override
     public String onPlaceholderRequest(Player player, @NotNull String identifier) {
-        List<String> list = splitByDotIgnoreQuotes(identifier);
+        return plan(identifier).apply(player);
+    }
 
-        switch (list.get(0).toUpperCase()) {
-            case "DIFFDAYS":
-                if (list.size() >= 4) {
-                    return String.valueOf(TimeUtils.diffDays(list.get(2), list.get(1), Boolean.parseBoolean(list.get(3))));
-                }
-            case  "DIFFWEEKS":
-                if (list.size() >= 4) {
-                    int weeks;
-                    try {
-                        weeks = Integer.parseInt(list.get(3));
-                    } catch (Exception e) {
-                        weeks = 1;
-                    }
-                    return String.valueOf(TimeUtils.diffWeeks(list.get(2), weeks, list.get(1)));
-                }
-            case  "DIFFMONTHS":
-                if (list.size() >= 4) {
-                    int month;
-                    try {
-                        month = Integer.parseInt(list.get(3));
-                    } catch (Exception e) {
-                        month = 31;
-                    }
-                    return String.valueOf(TimeUtils.diffMonth(list.get(2), month, list.get(1)));
-                }
-            case "AUTHME":
-
-                if (list.size() >= 2) {
-                    if (list.get(1).equalsIgnoreCase("registered")) {
-                        return AuthMe.isRegistered(player) ? "true" : "false";
-                    }
-                    if (list.get(1).equalsIgnoreCase("getUserCountByIp")) {
-                        return String.valueOf(AuthMe.getUserCountByIp(player));
-                    }
-                }
+    /**
+     * 为一名玩家批量求值多个占位符参数。
+     * <p>
+     * 求值期间打开一个 {@link EvaluationContext}，同一玩家的背包统计、主手物品与 AuthMe 信息各只读取一次，
+     * 适合计分板等一次需要多行结果的插件直接调用。
+     * </p>
+     *
+     * @param player      玩家对象，可为 {@code null}
+     * @param identifiers 占位符参数（不含 {@code mut_} 前缀），例如 {@code bukkit.emptySlots}
+     * @return 与参数顺序一致的结果列表
+     */
+    public List<String> evaluate(Player player, List<String> identifiers) {
+        List<String> results = new ArrayList<>(identifiers.size());
+        if (player == null) {
+            for (String identifier : identifiers) {
+                results.add(plan(identifier).apply(null));
+            }
+            return results;
+        }
+        EvaluationContext context = EvaluationContext.open(player);
+        try {
+            for (String identifier : identifiers) {
+                results.add(plan(identifier).apply(player));
+            }
+        } finally {
+            context.close();
+        }
+        return results;
+    }
 
-                if (list.size() >= 3) {
-                    if (list.get(1).equalsIgnoreCase("registrationDate")) {
-                        return AuthMe.getRegistrationDate(player, list.get(2));
-                    }
-                    if (list.get(1).equalsIgnoreCase("registrationDiffDate")) {
-                        return String.valueOf(AuthMe.getRegistrationDiffDate(player, list.get(2)));
-                    }
-                    if (list.get(1).equalsIgnoreCase("listNameByIp")) {
-                        return AuthMe.getNamesByIp(player, String.valueOf(list.get(2)));
-                    }
-                }
-            case "BUKKIT":
-                if (list.size() >= 3 && list.get(1).equalsIgnoreCase("playerOnline")) {
-                    return String.valueOf(Bukkit.getOnlinePlayers().contains(player));
-                }
-                if (list.size() >= 2) {
-                    if (list.get(1).equalsIgnoreCase("emptySlots")) {
-                        return String.valueOf(BukkitUtils.getEmptySlots(player));
-                    }
-                    if (list.get(1).equalsIgnoreCase("itemInHand")) {
-                        return ItemUtils.getItemMaterial(player);
-                    }
-                    if (list.get(1).equalsIgnoreCase("itemInHandName")) {
-                        return ItemUtils.getItemLocalizedName(player);
-                    }
-                    if (list.get(1).equalsIgnoreCase("itemInHandCustomName")) {
-                        return ItemUtils.getItemDisplayName(player);
-                    }
-                    if (list.get(1).equalsIgnoreCase("itemInHandAmount")) {
-                        return String.valueOf(ItemUtils.getItemAmount(player));
-                    }
-                    if (list.get(1).equalsIgnoreCase("itemInHandEnchanted")) {
-                        return String.valueOf(ItemUtils.isItemEnchanted(player));
-                    }
-                }
-            case "GETTHEWEEK":
-                return TimeUtils.getTheWeek();
+    /**
+     * 为所有在线玩家求值同一个占位符参数，应在主线程调用。
+     *
+     * @param identifier 占位符参数（不含 {@code mut_} 前缀）
+     * @return 玩家 -> 结果，按在线列表的顺序排列
+     * @see #evaluate(Collection, String)
+     */
+    public Map<Player, String> evaluateForAll(String identifier) {
+        return evaluate(Bukkit.getOnlinePlayers(), identifier);
+    }
+
+    /**
+     * 为多名玩家求值同一个占位符参数。
+     * <p>参数只查找（或编译）一次；结果与玩家无关的计划只计算一次，所有玩家共享同一个结果。</p>
+     *
+     * @param players    玩家列表
+     * @param identifier 占位符参数（不含 {@code mut_} 前缀）
+     * @return 玩家 -> 结果，按传入顺序排列
+     */
+    public Map<Player, String> evaluate(Collection<? extends Player> players, String identifier) {
+        PlaceholderPlan plan = plan(identifier);
+        Map<Player, String> results = new LinkedHashMap<>();
+        if (plan.isGlobal()) {
+            String value = null;
+            for (Player player : players) {
+                if (value == null) value = plan.apply(player);
+                results.put(player, value);
+            }
+            return results;
+        }
+        for (Player player : players) {
+            results.put(player, plan.apply(player));
+        }
+        return results;
+    }
 
-            case "LUCKPERMSEXPIRYTIME":
-                if (list.size() >= 2) {
-                    String str = PlaceholderAPI.setPlaceholders(player, list.get(1).replace("{", "%"));
-                    return String.valueOf(DurationParser.parseToDays(str));
+    /**
+     * 获取参数对应的执行计划，首次请求时编译并缓存。
+     *
+     * @param identifier 占位符参数
+     * @return 执行计划
+     */
+    private PlaceholderPlan plan(String identifier) {
+        PlaceholderPlan plan = plans.get(identifier);
+        if (plan == null) {
+            plan = compile(identifier);
+            if (plans.size() >= MAX_PLANS) {
+                // 超出上限时淘汰任意一个旧计划，热点参数会在下次请求时重新编译
+                Iterator<String> iterator = plans.keySet().iterator();
+                if (iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
                 }
-                return "-1";
+            }
+            plans.put(identifier, plan);
         }
+        return plan;
+    }
+
+    /**
+     * 清空已编译的计划缓存，在扩展卸载或重载时由 PlaceholderAPI 调用。
+     */
+    @Override
+    public void clear() {
+        plans.clear();
+    }
 
-        return "The parameter you entered does not exist.";
+    /**
+     * 将占位符参数编译为执行计划。
+     * <p>
+     * 参数在此处一次性完成分割，再交由 {@link PlaceholderRegistry} 匹配到对应模块的编译器，
+     * 由编译器解析时间单位、目标时间、格式化器、整数参数等。
+     * </p>
+     *
+     * <p>开启 {@link PlaceholderStats} 时，计划会按注册名称包装一层计时。</p>
+     *
+     * @param identifier 占位符参数，例如 {@code diffDays.second."HH:mm:ss".true}
+     * @return 不可变的执行计划
+     */
+    PlaceholderPlan compile(String identifier) {
+        List<String> tokens = splitByDotIgnoreQuotes(identifier);
+        PlaceholderPlan plan = registry.compile(tokens);
+        if (PlaceholderStats.isEnabled()) plan = PlaceholderStats.instrument(registry.name(tokens), plan);
+        return plan;
     }
 
     /**
@@ -212,37 +390,21 @@ public class ExpansionUtil extends PlaceholderExpansion {
      * 输出: [diffDays, second, HH:mm:ss, true]
      * </pre>
      * </p>
+     * <p>由 {@link IdentifierTokenizer} 单次线性扫描完成，支持 {@code \"} 转义引号。</p>
      *
      * @param input 原始字符串
      * @return 分割后的字符串列表（已去除引号）
      */
     public static List<String> splitByDotIgnoreQuotes(String input) {
-        String regex = "\\.(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)";
-        List<String> parts = new ArrayList<>();
-        for (String part : input.split(regex)) {
-            // 分割之后去掉首尾引号
-            if (part.startsWith("\"") && part.endsWith("\"") && part.length() >= 2) {
-                part = part.substring(1, part.length() - 1);
-            }
-            parts.add(part);
-        }
-        return parts;
+        return IdentifierTokenizer.split(input);
     }
 
     /**
      * 解析占位符中内部的站位，递归解析从最里面开始！<p>
+     * 模板只在第一次出现时由 {@link Template} 编译，之后直接渲染缓存的片段。
      */
     public static String parseAndReplace(String str, Player player) {
-        Pattern pattern = Pattern.compile("(?<!\\\\)\\{([^{}]*)}");
-        Matcher matcher = pattern.matcher(str);
-        while (matcher.find()) {
-            String inner = matcher.group(1); // 提取 {}
-            String replacement = PlaceholderAPI.setPlaceholders(player, "%" + inner + "%");
-            str = str.substring(0, matcher.start()) + replacement + str.substring(matcher.end());
-            matcher = pattern.matcher(str);
-        }
-        str = str.replaceAll("\\\\([{}])", "$1");
-        return str.replace("&", "§");
+        return Template.compile(str).render(player);
     }
 
 }
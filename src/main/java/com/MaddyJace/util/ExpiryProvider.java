@@ -0,0 +1,27 @@
+package com.MaddyJace.util;
+
+import org.bukkit.entity.Player;
+
+/**
+ * 权限/权限组过期时间的直接提供者。
+ * <p>
+ * {@code luckPermsExpiryTime} 默认通过 PlaceholderAPI 解析嵌套占位符得到格式化的时长字符串，
+ * 再由 {@link DurationParser} 解析回来。提供者可以直接从权限插件读取过期时间点，
+ * 跳过这一次完整的占位符解析与字符串往返。
+ * </p>
+ */
+public interface ExpiryProvider {
+
+    /** 提供者不支持该占位符，调用方应回退到字符串解析 */
+    long UNSUPPORTED = Long.MIN_VALUE;
+
+    /**
+     * 获取剩余秒数。
+     *
+     * @param player      玩家对象
+     * @param placeholder 嵌套占位符名称（不含 {@code %} 与花括号），例如 {@code luckperms_group_expiry_time_vip}
+     * @return 剩余秒数；没有对应的临时节点时返回 -1；不支持时返回 {@link #UNSUPPORTED}
+     */
+    long remainingSeconds(Player player, String placeholder);
+
+}
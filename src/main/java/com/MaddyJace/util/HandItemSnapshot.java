@@ -0,0 +1,150 @@
+package com.MaddyJace.util;
+
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 玩家主手物品的不可变快照。
+ * <p>
+ * {@link ItemStack#getItemMeta()} 每次调用都会复制一份元数据，
+ * 本类只在创建时读取一次物品与元数据，之后所有 {@code itemInHand*} 占位符都只读取快照的字段。
+ * </p>
+ */
+public final class HandItemSnapshot {
+
+    /** 空手（或手持空气）时的快照 */
+    static final HandItemSnapshot EMPTY = new HandItemSnapshot(Material.AIR, 0, null, "Air", 0, 0,
+            Collections.<String, Integer>emptyMap());
+
+    private final Material material;
+    private final int amount;
+    private final String displayName;
+    private final String localizedName;
+    private final int durability;
+    private final int maxDurability;
+    /** 附魔名称 -> 等级，保持物品上的顺序 */
+    private final Map<String, Integer> enchantments;
+    /** 分隔符 -> 拼接好的附魔列表 */
+    private final Map<String, String> joined = new ConcurrentHashMap<>();
+
+    private HandItemSnapshot(Material material, int amount, String displayName, String localizedName,
+                             int durability, int maxDurability, Map<String, Integer> enchantments) {
+        this.material = material;
+        this.amount = amount;
+        this.displayName = displayName;
+        this.localizedName = localizedName;
+        this.durability = durability;
+        this.maxDurability = maxDurability;
+        this.enchantments = enchantments;
+    }
+
+    /**
+     * 为物品创建快照，只在物品带有元数据时读取一次元数据。
+     *
+     * @param item 主手物品，可为 {@code null}
+     * @return 快照
+     */
+    static HandItemSnapshot of(ItemStack item) {
+        if (item == null) return EMPTY;
+        Material material = item.getType();
+        if (material == null || material == Material.AIR) {
+            return item.getAmount() == 0 ? EMPTY : new HandItemSnapshot(Material.AIR, item.getAmount(), null, "Air", 0, 0,
+                    Collections.<String, Integer>emptyMap());
+        }
+
+        String displayName = null;
+        String localizedName = material.name();
+        Map<String, Integer> enchantments = Collections.emptyMap();
+        ItemMeta meta = item.hasItemMeta() ? item.getItemMeta() : null;
+        if (meta != null) {
+            if (meta.hasDisplayName()) displayName = meta.getDisplayName();
+            String localized = Capabilities.localizedName(meta);
+            if (localized != null) localizedName = localized;
+            if (meta.hasEnchants()) {
+                Map<String, Integer> copy = new LinkedHashMap<>();
+                for (Map.Entry<Enchantment, Integer> entry : meta.getEnchants().entrySet()) {
+                    copy.put(entry.getKey().getName(), entry.getValue());
+                }
+                enchantments = Collections.unmodifiableMap(copy);
+            }
+        }
+
+        int maxDurability = material.getMaxDurability();
+        int durability = maxDurability > 0 ? maxDurability - item.getDurability() : 0;
+        return new HandItemSnapshot(material, item.getAmount(), displayName, localizedName,
+                durability, maxDurability, enchantments);
+    }
+
+    /** @return 物品材质，空手时为 {@link Material#AIR} */
+    public Material material() {
+        return material;
+    }
+
+    /** @return 物品数量 */
+    public int amount() {
+        return amount;
+    }
+
+    /** @return 本地化名称，没有时为材质名称，空手时为 "Air" */
+    public String localizedName() {
+        return localizedName;
+    }
+
+    /** @return 自定义名称，没有重命名时为本地化名称 */
+    public String displayName() {
+        return displayName != null ? displayName : localizedName;
+    }
+
+    /** @return 剩余耐久，物品没有耐久时为 0 */
+    public int durability() {
+        return durability;
+    }
+
+    /** @return 最大耐久，物品没有耐久时为 0 */
+    public int maxDurability() {
+        return maxDurability;
+    }
+
+    /** @return 附魔数量 */
+    public int enchantmentCount() {
+        return enchantments.size();
+    }
+
+    /** @return 是否有附魔 */
+    public boolean isEnchanted() {
+        return !enchantments.isEmpty();
+    }
+
+    /** @return 附魔名称 -> 等级（不可修改） */
+    public Map<String, Integer> enchantments() {
+        return enchantments;
+    }
+
+    /**
+     * 按分隔符拼接附魔列表，每项为 {@code 名称:等级}，结果按分隔符缓存。
+     *
+     * @param separator 分隔符
+     * @return 拼接结果，没有附魔时为空字符串
+     */
+    public String joinedEnchantments(String separator) {
+        String result = joined.get(separator);
+        if (result == null) {
+            StringBuilder builder = new StringBuilder();
+            for (Map.Entry<String, Integer> entry : enchantments.entrySet()) {
+                if (builder.length() > 0) builder.append(separator);
+                builder.append(entry.getKey()).append(':').append(entry.getValue());
+            }
+            result = builder.toString();
+            joined.put(separator, result);
+        }
+        return result;
+    }
+
+}
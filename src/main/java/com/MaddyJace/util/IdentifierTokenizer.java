@@ -0,0 +1,173 @@
+package com.MaddyJace.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 占位符参数分割器（忽略引号内的点）。
+ * <p>
+ * 取代原先基于前瞻正则 {@code \.(?=(?:[^"]*"[^"]*")*[^"]*$)} 的实现：正则在每个点号处都会
+ * 重新扫描剩余字符串，长参数（例如 {@code luckPermsExpiryTime."{...}"}）的开销随长度平方增长。
+ * 本类只对输入做一次线性扫描，分割结果以偏移量的形式保存在可复用的缓冲区中，
+ * 仅在调用 {@link #token(int)} 时才创建字符串。
+ * </p>
+ *
+ * <p>分割语义与正则版本保持一致：</p>
+ * <ul>
+ *     <li>点号之后的引号数量为偶数时，该点号视为分隔符；</li>
+ *     <li>与 {@link String#split(String)} 相同，末尾的空片段会被丢弃；</li>
+ *     <li>首尾均为引号且长度不小于 2 的片段会去掉首尾引号。</li>
+ * </ul>
+ * <p>
+ * 额外支持转义引号：{@code \"} 不参与引号计数，并在输出中还原为 {@code "}。
+ * </p>
+ * <p>实例不是线程安全的，应在单个线程内复用。</p>
+ */
+public final class IdentifierTokenizer {
+
+    private static final ThreadLocal<IdentifierTokenizer> LOCAL = ThreadLocal.withInitial(IdentifierTokenizer::new);
+
+    private String input = "";
+    /** 每个片段占两个位置：起始偏移（含）与结束偏移（不含），分割完成后已去除首尾引号 */
+    private int[] bounds = new int[16];
+    /** 扫描过程中记录的点号位置，低位保存该点号之前引号数量的奇偶性 */
+    private int[] dots = new int[16];
+    private int count;
+    private boolean escaped;
+
+    /**
+     * 对输入字符串进行分割，结果覆盖上一次的分割结果。
+     *
+     * @param input 原始字符串
+     * @return 当前实例，便于链式调用
+     */
+    public IdentifierTokenizer reset(String input) {
+        this.input = input;
+        this.count = 0;
+        this.escaped = false;
+
+        int length = input.length();
+        int dotCount = 0;
+        int parity = 0;
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (c == '"') {
+                if (i > 0 && input.charAt(i - 1) == '\\') {
+                    escaped = true;
+                } else {
+                    parity ^= 1;
+                }
+            } else if (c == '.') {
+                if (dotCount == dots.length) dots = grow(dots);
+                dots[dotCount++] = (i << 1) | parity;
+            }
+        }
+
+        // 点号之后引号数量为偶数 <=> 点号之前的引号奇偶性与总数相同
+        int start = 0;
+        boolean matched = false;
+        for (int d = 0; d < dotCount; d++) {
+            if ((dots[d] & 1) != parity) continue;
+            int position = dots[d] >>> 1;
+            add(start, position);
+            start = position + 1;
+            matched = true;
+        }
+        if (!matched) {
+            add(0, length);
+            stripQuotes(0);
+            return this;
+        }
+        add(start, length);
+
+        // 与 String#split 保持一致：丢弃末尾的空片段
+        while (count > 0 && bounds[(count - 1) << 1] == bounds[((count - 1) << 1) + 1]) {
+            count--;
+        }
+        for (int i = 0; i < count; i++) {
+            stripQuotes(i);
+        }
+        return this;
+    }
+
+    /**
+     * @return 分割得到的片段数量
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 获取指定片段（已去除首尾引号）。
+     *
+     * @param index 片段下标
+     * @return 片段字符串
+     */
+    public String token(int index) {
+        int start = bounds[index << 1];
+        int end = bounds[(index << 1) + 1];
+        String token = input.substring(start, end);
+        return escaped ? token.replace("\\\"", "\"") : token;
+    }
+
+    /**
+     * 在不创建字符串的情况下，判断指定片段是否与给定字符串相等（忽略大小写）。
+     *
+     * @param index 片段下标
+     * @param value 要比较的字符串
+     * @return 相等返回 {@code true}
+     */
+    public boolean tokenEqualsIgnoreCase(int index, String value) {
+        int start = bounds[index << 1];
+        int end = bounds[(index << 1) + 1];
+        return end - start == value.length() && input.regionMatches(true, start, value, 0, value.length());
+    }
+
+    /**
+     * 将所有片段复制为列表。
+     *
+     * @return 新的片段列表
+     */
+    public List<String> toList() {
+        List<String> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            parts.add(token(i));
+        }
+        return parts;
+    }
+
+    /**
+     * 使用当前线程复用的分割器分割字符串。
+     *
+     * @param input 原始字符串
+     * @return 分割后的字符串列表（已去除引号）
+     */
+    public static List<String> split(String input) {
+        return LOCAL.get().reset(input).toList();
+    }
+
+    private void add(int start, int end) {
+        if ((count << 1) == bounds.length) bounds = grow(bounds);
+        bounds[count << 1] = start;
+        bounds[(count << 1) + 1] = end;
+        count++;
+    }
+
+    /** 首尾均为引号时去掉引号，结尾的引号不能是转义引号 */
+    private void stripQuotes(int index) {
+        int start = bounds[index << 1];
+        int end = bounds[(index << 1) + 1];
+        if (end - start >= 2 && input.charAt(start) == '"' && input.charAt(end - 1) == '"'
+                && !(end - start > 2 && input.charAt(end - 2) == '\\')) {
+            bounds[index << 1] = start + 1;
+            bounds[(index << 1) + 1] = end - 1;
+        }
+    }
+
+    private static int[] grow(int[] array) {
+        int[] grown = new int[array.length << 1];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+}
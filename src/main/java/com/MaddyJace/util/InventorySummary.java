@@ -0,0 +1,81 @@
+package com.MaddyJace.util;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 玩家主背包（槽位 0-35）的不可变统计结果。
+ * <p>
+ * 一次遍历得到空格数量、每种材质的物品总数，以及每种材质未堆满的剩余容量，
+ * 之后所有背包相关的占位符都只读取该结果。
+ * </p>
+ */
+public final class InventorySummary {
+
+    /** 主背包槽位数，不包括盔甲槽和副手槽 */
+    static final int STORAGE_SLOTS = 36;
+
+    private final int emptySlots;
+    /** 材质 -> {物品总数, 未堆满的剩余容量} */
+    private final Map<Material, int[]> materials;
+
+    private InventorySummary(int emptySlots, Map<Material, int[]> materials) {
+        this.emptySlots = emptySlots;
+        this.materials = materials;
+    }
+
+    /**
+     * 统计玩家背包，只能在主线程调用。
+     *
+     * @param inventory 玩家背包
+     * @return 统计结果
+     */
+    static InventorySummary of(PlayerInventory inventory) {
+        int emptySlots = 0;
+        Map<Material, int[]> materials = new EnumMap<>(Material.class);
+        ItemStack[] contents = Capabilities.storageContents(inventory);
+        int slots = Math.min(STORAGE_SLOTS, contents.length);
+        for (int slot = 0; slot < slots; slot++) {
+            ItemStack item = contents[slot];
+            if (item == null || item.getType() == Material.AIR) {
+                emptySlots++;
+                continue;
+            }
+            int[] stats = materials.computeIfAbsent(item.getType(), k -> new int[2]);
+            stats[0] += item.getAmount();
+            stats[1] += Math.max(0, item.getMaxStackSize() - item.getAmount());
+        }
+        return new InventorySummary(emptySlots, materials);
+    }
+
+    /** @return 主背包中空格的数量 */
+    public int emptySlots() {
+        return emptySlots;
+    }
+
+    /**
+     * @param material 材质
+     * @return 主背包中该材质的物品总数
+     */
+    public int count(Material material) {
+        int[] stats = materials.get(material);
+        return stats == null ? 0 : stats[0];
+    }
+
+    /**
+     * 估算还能放入多少个该材质的物品：空格按最大堆叠数计算，加上已有物品未堆满的部分。
+     * <p>按材质估算，不区分物品的元数据。</p>
+     *
+     * @param material 材质
+     * @return 剩余容量
+     */
+    public int freeCapacity(Material material) {
+        int[] stats = materials.get(material);
+        return emptySlots * material.getMaxStackSize() + (stats == null ? 0 : stats[1]);
+    }
+
+}
@@ -0,0 +1,242 @@
+package com.MaddyJace.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.event.player.PlayerItemBreakEvent;
+import org.bukkit.event.player.PlayerItemConsumeEvent;
+import org.bukkit.event.player.PlayerItemDamageEvent;
+import org.bukkit.event.player.PlayerItemHeldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerSwapHandItemsEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 事件驱动的玩家背包状态跟踪器。
+ * <p>
+ * 在 CraftBukkit 上每次 {@code inventory.getItem(slot)} 都会包装一个新的 {@code ItemStack}，
+ * 逐格统计空格的开销随玩家数与刷新频率线性增长。本类为每个玩家缓存一份 {@link InventorySummary}：
+ * 背包可能变化的事件（点击、拖动、拾取、丢弃、损坏、放置、消耗、死亡、重生）只把玩家标记为脏，
+ * 下一次读取时才重新统计。
+ * </p>
+ * <p>
+ * 主手物品的 {@link HandItemSnapshot} 使用同样的方式缓存，除上述事件外，
+ * 切换手持槽位、交换主副手与物品耐久变化也会使其失效。
+ * </p>
+ * <p>
+ * 事件在变化生效之前触发，因此只有在标记之后的 tick 中统计的结果才视为干净；
+ * 其它插件直接修改背包不会触发事件，超过 {@code inventory.max-age-ticks} 的结果也会重新统计。
+ * </p>
+ * <p>
+ * 异步快照模式（{@code inventory.async-snapshots}）下，主线程每个 tick 为请求过占位符的在线玩家
+ * 刷新过期的统计结果与主手快照；两者都是不可变对象，通过 volatile 字段发布，
+ * 异步线程（异步聊天、异步计分板等）只读取已发布的结果，从不访问 Bukkit 的背包对象。
+ * 玩家第一次在异步线程被请求时还没有结果，此时返回 {@code null}，占位符显示 {@code inventory.loading-text}，
+ * 下一个 tick 起即可读到真实数据。
+ * </p>
+ */
+final class InventoryTracker implements Listener {
+
+    private final long maxAgeTicks;
+    private final boolean asyncSnapshots;
+    private BukkitTask refreshTask;
+
+    /** 玩家 UUID -> 跟踪状态 */
+    private final Map<UUID, State> states = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxAgeTicks    没有事件时统计结果的最长有效期（tick）
+     * @param asyncSnapshots 是否启用异步快照模式
+     */
+    InventoryTracker(long maxAgeTicks, boolean asyncSnapshots) {
+        this.maxAgeTicks = Math.max(1, maxAgeTicks);
+        this.asyncSnapshots = asyncSnapshots;
+    }
+
+    /**
+     * 异步快照模式下启动每个 tick 执行的刷新任务。
+     *
+     * @param plugin 用于调度任务的插件
+     */
+    void start(Plugin plugin) {
+        if (asyncSnapshots) refreshTask = Bukkit.getScheduler().runTaskTimer(plugin, this::refreshAll, 1L, 1L);
+    }
+
+    /** 停止刷新任务 */
+    void close() {
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+    }
+
+    /** 在主线程刷新所有被跟踪玩家的过期结果 */
+    private void refreshAll() {
+        for (Map.Entry<UUID, State> entry : states.entrySet()) {
+            Player player = Bukkit.getPlayer(entry.getKey());
+            if (player == null) {
+                states.remove(entry.getKey());
+                continue;
+            }
+            summary(player);
+            hand(player);
+        }
+    }
+
+    /**
+     * 获取玩家的背包统计结果，必要时重新统计。
+     * <p>
+     * 异步快照模式下只有主线程会重新统计，其它线程直接返回已发布的结果，还没有结果时返回 {@code null}；
+     * 未启用时任意线程都按同样的规则重新统计（与直接读取背包的行为一致），过期或被标记为脏的结果不会一直沿用。
+     * </p>
+     *
+     * @param player 玩家对象
+     * @return 背包统计结果；异步快照模式下其它线程在第一次刷新前为 {@code null}
+     */
+    InventorySummary summary(Player player) {
+        State state = state(player);
+        InventorySummary summary = state.summary;
+        long now = TickClock.current();
+        if (needsCompute(summary, state.computedTick, state.dirtyTick, now)) {
+            summary = InventorySummary.of(player.getInventory());
+            state.computedTick = now;
+            state.summary = summary;
+        }
+        return summary;
+    }
+
+    /**
+     * 获取玩家主手物品的快照，必要时重新读取。
+     * <p>线程规则与 {@link #summary(Player)} 相同。</p>
+     *
+     * @param player 玩家对象
+     * @return 主手物品快照；异步快照模式下其它线程在第一次刷新前为 {@code null}
+     */
+    HandItemSnapshot hand(Player player) {
+        State state = state(player);
+        HandItemSnapshot hand = state.hand;
+        long now = TickClock.current();
+        if (needsCompute(hand, state.handComputedTick, state.handDirtyTick, now)) {
+            hand = HandItemSnapshot.of(Capabilities.itemInMainHand(player.getInventory()));
+            state.handComputedTick = now;
+            state.hand = hand;
+        }
+        return hand;
+    }
+
+    private State state(Player player) {
+        return states.computeIfAbsent(player.getUniqueId(), k -> new State());
+    }
+
+    private boolean needsCompute(Object value, long computedTick, long dirtyTick, long now) {
+        // 异步快照模式下其它线程从不访问背包，过期的结果由主线程的刷新任务更新
+        if (asyncSnapshots && !Bukkit.isPrimaryThread()) return false;
+        return value == null || computedTick <= dirtyTick || now - computedTick >= maxAgeTicks;
+    }
+
+    /** 将玩家的背包与主手物品标记为脏 */
+    void markDirty(HumanEntity entity) {
+        if (!(entity instanceof Player)) return;
+        State state = states.get(entity.getUniqueId());
+        if (state == null) return;
+        long now = TickClock.current();
+        state.dirtyTick = now;
+        state.handDirtyTick = now;
+    }
+
+    /** 只将玩家的主手物品标记为脏 */
+    void markHandDirty(Player player) {
+        State state = states.get(player.getUniqueId());
+        if (state != null) state.handDirtyTick = TickClock.current();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onClick(InventoryClickEvent event) {
+        markDirty(event.getWhoClicked());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onDrag(InventoryDragEvent event) {
+        markDirty(event.getWhoClicked());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPickup(EntityPickupItemEvent event) {
+        if (event.getEntity() instanceof Player) markDirty((Player) event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onDrop(PlayerDropItemEvent event) {
+        markDirty(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onItemBreak(PlayerItemBreakEvent event) {
+        markDirty(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        markDirty(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onConsume(PlayerItemConsumeEvent event) {
+        markDirty(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onDeath(PlayerDeathEvent event) {
+        markDirty(event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onRespawn(PlayerRespawnEvent event) {
+        markDirty(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onHeld(PlayerItemHeldEvent event) {
+        markHandDirty(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onSwapHands(PlayerSwapHandItemsEvent event) {
+        markHandDirty(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onItemDamage(PlayerItemDamageEvent event) {
+        markHandDirty(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        states.remove(event.getPlayer().getUniqueId());
+    }
+
+    private static final class State {
+        private volatile InventorySummary summary;
+        private volatile long computedTick;
+        private volatile long dirtyTick = -1;
+        private volatile HandItemSnapshot hand;
+        private volatile long handComputedTick;
+        private volatile long handDirtyTick = -1;
+    }
+
+}
@@ -1,72 +1,78 @@
 package com.MaddyJace.util;
 
-import org.bukkit.Material;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
 
+import java.util.function.Function;
+
+/**
+ * 玩家主手物品相关的工具类。
+ * <p>
+ * 所有方法都读取同一份 {@link HandItemSnapshot}，同一 tick 内的多个占位符只读取一次物品与元数据。
+ * 异步线程上第一次请求、快照还没有发布时，占位符返回 {@code inventory.loading-text}，而不是空手的结果。
+ * </p>
+ */
 public class ItemUtils {
 
     /**
-     * 获取玩家主手物品的材质类型
+     * 注册 {@code bukkit.itemInHand*} 占位符。
+     * <p>
+     * {@code %mut_bukkit.itemInHandEnchantments.", "%} 按分隔符返回附魔列表（{@code 名称:等级}），
+     * 省略分隔符时使用 {@code ", "}。
+     * </p>
+     *
+     * @param registry 占位符注册表
+     */
+    static void register(PlaceholderRegistry registry) {
+        registry.register("bukkit.itemInHand", 0, args -> ItemUtils::getItemMaterial);
+        registry.register("bukkit.itemInHandName", 0, args -> ItemUtils::getItemLocalizedName);
+        registry.register("bukkit.itemInHandCustomName", 0, args -> ItemUtils::getItemDisplayName);
+        registry.register("bukkit.itemInHandAmount", 0, args -> player -> BukkitUtils.formatHand(player, hand -> String.valueOf(hand.amount())));
+        registry.register("bukkit.itemInHandEnchanted", 0, args -> player -> BukkitUtils.formatHand(player, hand -> String.valueOf(hand.isEnchanted())));
+        registry.register("bukkit.itemInHandDurability", 0, args -> player -> BukkitUtils.formatHand(player, hand -> String.valueOf(hand.durability())));
+        registry.register("bukkit.itemInHandMaxDurability", 0, args -> player -> BukkitUtils.formatHand(player, hand -> String.valueOf(hand.maxDurability())));
+        registry.register("bukkit.itemInHandEnchantmentCount", 0, args -> player -> BukkitUtils.formatHand(player, hand -> String.valueOf(hand.enchantmentCount())));
+        registry.register("bukkit.itemInHandEnchantments", 0, args -> {
+            String separator = args.isEmpty() ? ", " : args.get(0);
+            Function<HandItemSnapshot, String> joined = hand -> hand.joinedEnchantments(separator);
+            return player -> BukkitUtils.formatHand(player, joined);
+        });
+    }
+
+    /**
+     * 获取玩家主手物品的材质类型，异步快照还没有发布时返回 {@code inventory.loading-text}
      */
     public static String getItemMaterial(Player player) {
-        ItemStack item = player.getInventory().getItemInMainHand();
-        if (item == null || item.getType() == Material.AIR) {
-            return Material.AIR.name();
-        }
-        return item.getType().name();
+        return BukkitUtils.formatHand(player, hand -> hand.material().name());
     }
 
     /**
-     * 获取玩家主手物品的数量
+     * 获取玩家主手物品的数量，异步快照还没有发布或玩家为 {@code null} 时返回 -1
      */
     public static int getItemAmount(Player player) {
-        ItemStack item = player.getInventory().getItemInMainHand();
-        if (item == null) return 0;
-        return item.getAmount();
+        HandItemSnapshot hand = BukkitUtils.hand(player);
+        return hand != null ? hand.amount() : -1;
     }
 
     /**
-     * 获取玩家主手物品的本地化名称
+     * 获取玩家主手物品的本地化名称，异步快照还没有发布时返回 {@code inventory.loading-text}
      */
     public static String getItemLocalizedName(Player player) {
-        ItemStack item = player.getInventory().getItemInMainHand();
-        if (item == null || item.getType() == Material.AIR) {
-            return "Air";
-        }
-        ItemMeta meta = item.getItemMeta();
-        if (meta != null && meta.hasLocalizedName()) {
-            return meta.getLocalizedName();
-        }
-        return item.getType().name();
+        return BukkitUtils.formatHand(player, HandItemSnapshot::localizedName);
     }
 
     /**
-     * 获取玩家主手物品的显示名称，如果没有重命名则显示本地化名称
+     * 获取玩家主手物品的显示名称，如果没有重命名则显示本地化名称；异步快照还没有发布时返回 {@code inventory.loading-text}
      */
     public static String getItemDisplayName(Player player) {
-        ItemStack item = player.getInventory().getItemInMainHand();
-        if (item == null || item.getType() == Material.AIR) {
-            return "Air";
-        }
-        ItemMeta meta = item.getItemMeta();
-        if (meta != null && meta.hasDisplayName()) {
-            return meta.getDisplayName();
-        }
-        // 没有自定义名称，则返回本地化名称
-        return getItemLocalizedName(player);
+        return BukkitUtils.formatHand(player, HandItemSnapshot::displayName);
     }
 
     /**
-     * 判断玩家主手物品是否有附魔
+     * 判断玩家主手物品是否有附魔，异步快照还没有发布或玩家为 {@code null} 时返回 {@code false}
      */
     public static boolean isItemEnchanted(Player player) {
-        ItemStack item = player.getInventory().getItemInMainHand();
-        if (item == null || item.getType() == Material.AIR) {
-            return false;
-        }
-        return !item.getEnchantments().isEmpty();
+        HandItemSnapshot hand = BukkitUtils.hand(player);
+        return hand != null && hand.isEnchanted();
     }
 
 }
@@ -0,0 +1,120 @@
+package com.MaddyJace.util;
+
+import net.luckperms.api.LuckPerms;
+import net.luckperms.api.event.EventSubscription;
+import net.luckperms.api.event.node.NodeMutateEvent;
+import net.luckperms.api.model.PermissionHolder;
+import net.luckperms.api.model.user.User;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.node.types.InheritanceNode;
+import net.luckperms.api.node.types.PermissionNode;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 LuckPerms API 的过期时间提供者。
+ * <p>
+ * 支持 LuckPerms 扩展的 {@code luckperms_expiry_time_<权限>} 与
+ * {@code luckperms_group_expiry_time_<权限组>} 两种占位符。
+ * 每个玩家的过期时间点按占位符缓存，节点变更（{@link NodeMutateEvent}）时失效：
+ * 玩家节点变更只清除该玩家，权限组节点变更清除全部缓存；过期时间点到达后也会重新读取，
+ * 玩家退出时移除其缓存。
+ * </p>
+ * <p>
+ * 构造时只依赖 {@link LuckPerms} 接口，可以传入本地的桩实现进行测试。
+ * </p>
+ */
+final class LuckPermsExpiryProvider implements ExpiryProvider, Listener {
+
+    private static final String PERMISSION_PREFIX = "luckperms_expiry_time_";
+    private static final String GROUP_PREFIX = "luckperms_group_expiry_time_";
+
+    /** 缓存中表示没有对应临时节点 */
+    private static final long NONE = -1L;
+
+    private final LuckPerms luckPerms;
+
+    /** 玩家 UUID -> (小写占位符名称 -> 过期时间点毫秒或 {@link #NONE}) */
+    private final Map<UUID, Map<String, Long>> expiries = new ConcurrentHashMap<>();
+
+    private EventSubscription<NodeMutateEvent> subscription;
+
+    LuckPermsExpiryProvider(LuckPerms luckPerms) {
+        this.luckPerms = luckPerms;
+    }
+
+    /**
+     * 订阅节点变更事件。
+     *
+     * @param plugin 订阅所属的插件
+     */
+    void subscribe(Object plugin) {
+        subscription = luckPerms.getEventBus().subscribe(plugin, NodeMutateEvent.class, this::onNodeMutate);
+    }
+
+    /** 取消订阅并清空缓存 */
+    void close() {
+        if (subscription != null) {
+            subscription.close();
+            subscription = null;
+        }
+        expiries.clear();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        expiries.remove(event.getPlayer().getUniqueId());
+    }
+
+    @Override
+    public long remainingSeconds(Player player, String placeholder) {
+        if (player == null) return UNSUPPORTED;
+        String key = placeholder.toLowerCase(Locale.ROOT);
+        boolean group = key.startsWith(GROUP_PREFIX);
+        if (!group && !key.startsWith(PERMISSION_PREFIX)) return UNSUPPORTED;
+
+        long now = System.currentTimeMillis();
+        Map<String, Long> cached = expiries.computeIfAbsent(player.getUniqueId(), k -> new ConcurrentHashMap<>());
+        Long expiry = cached.get(key);
+        if (expiry == null || (expiry != NONE && expiry <= now)) {
+            User user = luckPerms.getUserManager().getUser(player.getUniqueId());
+            if (user == null) return UNSUPPORTED;
+            String target = group ? key.substring(GROUP_PREFIX.length()) : key.substring(PERMISSION_PREFIX.length());
+            expiry = lookup(user, target, group);
+            cached.put(key, expiry);
+        }
+        if (expiry == NONE || expiry <= now) return NONE;
+        return (expiry - now) / 1000L;
+    }
+
+    /** 在玩家自身的节点中查找最晚的过期时间点 */
+    private static long lookup(User user, String target, boolean group) {
+        long latest = NONE;
+        for (Node node : user.getNodes()) {
+            if (!node.hasExpiry() || !node.getValue()) continue;
+            boolean matches = group
+                    ? node instanceof InheritanceNode && ((InheritanceNode) node).getGroupName().equalsIgnoreCase(target)
+                    : node instanceof PermissionNode && ((PermissionNode) node).getPermission().equalsIgnoreCase(target);
+            if (matches) latest = Math.max(latest, node.getExpiry().toEpochMilli());
+        }
+        return latest;
+    }
+
+    private void onNodeMutate(NodeMutateEvent event) {
+        PermissionHolder target = event.getTarget();
+        if (target instanceof User) {
+            expiries.remove(((User) target).getUniqueId());
+        } else {
+            expiries.clear();
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.MaddyJace.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在线玩家的内存索引。
+ * <p>
+ * 由加入、退出、切换世界事件维护，取代每次请求都遍历 {@link Bukkit#getOnlinePlayers()} 的做法，
+ * 所有读取都是 O(1)，可以在任意线程调用：
+ * </p>
+ * <ul>
+ *     <li>玩家名称（不区分大小写）-> UUID，用于判断玩家是否在线；</li>
+ *     <li>在线人数与每个世界的在线人数，随事件增减；</li>
+ *     <li>每个权限组的在线人数（拥有 {@code group.<组名>} 权限的玩家），
+ *     只统计被占位符请求过的组，由主线程定时重新统计后整体发布。</li>
+ * </ul>
+ */
+final class OnlineIndex implements Listener {
+
+    private final Plugin plugin;
+    private final long groupRefreshTicks;
+
+    /** 小写玩家名称 -> UUID */
+    private final Map<String, UUID> names = new ConcurrentHashMap<>();
+    /** 玩家 UUID -> 所在世界（小写） */
+    private final Map<UUID, String> worlds = new ConcurrentHashMap<>();
+    /** 小写世界名称 -> 在线人数 */
+    private final Map<String, AtomicInteger> worldCounts = new ConcurrentHashMap<>();
+
+    /** 被请求过的权限组（小写） */
+    private final Set<String> trackedGroups = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    /** 权限组 -> 在线人数，每次统计后整体替换 */
+    private volatile Map<String, Integer> groupCounts = Collections.emptyMap();
+    private BukkitTask groupTask;
+
+    /**
+     * @param plugin            用于调度定时任务的插件
+     * @param groupRefreshTicks 权限组人数的统计间隔（tick）
+     */
+    OnlineIndex(Plugin plugin, long groupRefreshTicks) {
+        this.plugin = plugin;
+        this.groupRefreshTicks = Math.max(1, groupRefreshTicks);
+    }
+
+    /** 为当前所有在线玩家建立索引，并启动权限组统计任务 */
+    void start() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            add(player);
+        }
+        groupTask = Bukkit.getScheduler().runTaskTimer(plugin, this::refreshGroups, groupRefreshTicks, groupRefreshTicks);
+    }
+
+    /** 停止权限组统计任务 */
+    void close() {
+        if (groupTask != null) {
+            groupTask.cancel();
+            groupTask = null;
+        }
+    }
+
+    /**
+     * @param name 玩家名称，不区分大小写
+     * @return 玩家是否在线
+     */
+    boolean isOnline(String name) {
+        return names.containsKey(name.toLowerCase(Locale.ROOT));
+    }
+
+    /** @return 在线人数 */
+    int onlineCount() {
+        return worlds.size();
+    }
+
+    /**
+     * @param world 世界名称，不区分大小写
+     * @return 该世界的在线人数
+     */
+    int worldCount(String world) {
+        AtomicInteger count = worldCounts.get(world.toLowerCase(Locale.ROOT));
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * 获取权限组的在线人数。
+     * <p>第一次请求某个组时，在主线程上立即统计，在其它线程上返回 0 直到下一次定时统计。</p>
+     *
+     * @param group 权限组名称，需为小写
+     * @return 该组的在线人数
+     */
+    int groupCount(String group) {
+        Integer count = groupCounts.get(group);
+        if (count != null) return count;
+        if (trackedGroups.add(group) && Bukkit.isPrimaryThread()) {
+            refreshGroups();
+            count = groupCounts.get(group);
+        }
+        return count == null ? 0 : count;
+    }
+
+    /** 重新统计所有被请求过的权限组，只能在主线程调用 */
+    private void refreshGroups() {
+        if (trackedGroups.isEmpty()) return;
+        Map<String, Integer> counts = new HashMap<>();
+        for (String group : trackedGroups) {
+            counts.put(group, 0);
+        }
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            for (String group : trackedGroups) {
+                if (player.hasPermission("group." + group)) counts.merge(group, 1, Integer::sum);
+            }
+        }
+        groupCounts = Collections.unmodifiableMap(counts);
+    }
+
+    private void add(Player player) {
+        names.put(player.getName().toLowerCase(Locale.ROOT), player.getUniqueId());
+        moveTo(player.getUniqueId(), player.getWorld().getName().toLowerCase(Locale.ROOT));
+    }
+
+    private void moveTo(UUID uuid, String world) {
+        String previous = world == null ? worlds.remove(uuid) : worlds.put(uuid, world);
+        if (previous != null) {
+            AtomicInteger count = worldCounts.get(previous);
+            if (count != null) count.decrementAndGet();
+        }
+        if (world != null) {
+            worldCounts.computeIfAbsent(world, k -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        add(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChangedWorld(PlayerChangedWorldEvent event) {
+        Player player = event.getPlayer();
+        moveTo(player.getUniqueId(), player.getWorld().getName().toLowerCase(Locale.ROOT));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        Player player = event.getPlayer();
+        names.remove(player.getName().toLowerCase(Locale.ROOT), player.getUniqueId());
+        moveTo(player.getUniqueId(), null);
+    }
+
+}
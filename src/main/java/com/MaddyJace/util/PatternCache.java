@@ -0,0 +1,84 @@
+package com.MaddyJace.util;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 线程安全的时间格式与时间参数缓存。
+ * <p>
+ * {@link DateTimeFormatter#ofPattern(String)} 与 {@link LocalTime#parse(CharSequence)}
+ * 每次调用都会重新解析字符串，解析失败时还要付出创建异常的开销。
+ * 本类按原始字符串缓存解析结果，并同样记住无效的字符串，
+ * 配置写错时也只会在第一次解析时抛出异常。
+ * </p>
+ */
+public final class PatternCache {
+
+    /** 每类缓存的最大条目数，超出后整体清空 */
+    private static final int MAX_ENTRIES = 512;
+
+    /** 表示字符串无效的标记 */
+    private static final Object INVALID = new Object();
+
+    /** 检查格式化器能否格式化 {@link LocalDateTime} 时使用的样本 */
+    private static final LocalDateTime SAMPLE = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private static final Map<String, Object> FORMATTERS = new ConcurrentHashMap<>();
+    private static final Map<String, Object> TIMES = new ConcurrentHashMap<>();
+
+    private PatternCache() {}
+
+    /**
+     * 获取指定模式的日期格式化器。
+     *
+     * @param pattern {@link DateTimeFormatter} 模式，例如 "yyyy-MM-dd HH:mm:ss"
+     * @return 格式化器，模式无效或无法格式化 {@link LocalDateTime}（例如包含时区字段）时返回 {@code null}
+     */
+    public static DateTimeFormatter formatter(String pattern) {
+        if (pattern == null) return null;
+        Object value = lookup(FORMATTERS, pattern);
+        if (value == null) {
+            try {
+                DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern);
+                // 在这里试格式化一次，之后的调用不会再因为字段不支持而抛出异常
+                formatter.format(SAMPLE);
+                value = formatter;
+            } catch (IllegalArgumentException | DateTimeException e) {
+                value = INVALID;
+            }
+            FORMATTERS.put(pattern, value);
+        }
+        return value == INVALID ? null : (DateTimeFormatter) value;
+    }
+
+    /**
+     * 获取 {@code HH:mm:ss} 格式的时间。
+     *
+     * @param time 时间字符串
+     * @return 解析后的时间，字符串无效时返回 {@code null}
+     */
+    public static LocalTime time(String time) {
+        if (time == null) return null;
+        Object value = lookup(TIMES, time);
+        if (value == null) {
+            try {
+                value = LocalTime.parse(time);
+            } catch (RuntimeException e) {
+                value = INVALID;
+            }
+            TIMES.put(time, value);
+        }
+        return value == INVALID ? null : (LocalTime) value;
+    }
+
+    private static Object lookup(Map<String, Object> cache, String key) {
+        Object value = cache.get(key);
+        if (value == null && cache.size() >= MAX_ENTRIES) cache.clear();
+        return value;
+    }
+
+}
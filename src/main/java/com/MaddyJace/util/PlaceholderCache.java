@@ -0,0 +1,293 @@
+package com.MaddyJace.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 任意占位符的缓存包装。
+ * <p>
+ * {@code %mut_cache.<ttl>.<scope>."{...}"%} 通过 {@link Template} 解析花括号中的占位符（可以嵌套，
+ * 也可以是其它扩展的占位符），结果在 {@code ttl} 内直接返回，每名玩家（{@code player}）或全服共用一份
+ * （{@code global}）。{@code ttl} 为秒数或时长字符串（例如 {@code 30}、{@code 5m}、{@code 1h30m}）。
+ * </p>
+ * <p>
+ * 每个缓存项在每个有效期内最多求值一次：第一次求值时其它异步线程等待结果，主线程不等待，
+ * 直接返回配置项 {@code cache.loading-text}（不计入命中与未命中）；
+ * 过期后由第一个请求的线程重新求值，期间其它线程继续返回旧值，不会同时重复求值。
+ * </p>
+ * <p>
+ * 内部占位符、有效期与范围相同的缓存项属于同一个定义，定义与其中的缓存项都保存在 {@link ConcurrentHashMap} 中，
+ * 命中时不加锁也不分配对象。缓存项总数超过配置项 {@code cache.max-entries} 时，由一个线程批量淘汰
+ * 最久未访问的约 1/8（近似 LRU），其它线程不等待。
+ * 命中与未命中次数按定义统计，通过 {@code %mut_cache.stats.<field>.<ttl>.<scope>."{...}"%} 读取，
+ * 有效期与范围的写法需与对应的 {@code cache} 占位符解析结果相同（例如 {@code 30} 与 {@code 30s} 是同一个定义）。
+ * </p>
+ */
+final class PlaceholderCache {
+
+    /** 最多记录的定义数，超出后整体清空 */
+    private static final int MAX_DEFINITIONS = 1024;
+    /** 全服共用的缓存项（以及没有玩家的请求）使用的键 */
+    private static final UUID SHARED = new UUID(0L, 0L);
+
+    private static volatile int maxEntries = 4096;
+    /** 主线程遇到其它线程正在第一次求值时返回的文本 */
+    private static volatile String loadingText = "...";
+
+    /** 定义标识 -> 定义 */
+    private static final Map<String, Definition> DEFINITIONS = new ConcurrentHashMap<>();
+    /** 所有定义中缓存项的近似总数 */
+    private static final AtomicInteger SIZE = new AtomicInteger();
+    /** 是否已有线程在淘汰 */
+    private static final AtomicBoolean EVICTING = new AtomicBoolean();
+
+    private PlaceholderCache() {}
+
+    /**
+     * 注册 {@code cache} 与 {@code cache.stats} 占位符。
+     *
+     * @param registry 占位符注册表
+     */
+    static void register(PlaceholderRegistry registry) {
+        registry.register("cache", 3, args -> {
+            long ttlMillis = ttlMillis(args.get(0));
+            String scope = args.get(1).toLowerCase(Locale.ROOT);
+            if (ttlMillis <= 0 || !(scope.equals("player") || scope.equals("global"))) return player -> "-1";
+            return new Cached(args.get(2), ttlMillis, scope.equals("global"));
+        });
+        registry.register("cache.stats", 4, args -> {
+            String field = args.get(0).toLowerCase(Locale.ROOT);
+            long ttlMillis = ttlMillis(args.get(1));
+            String scope = args.get(2).toLowerCase(Locale.ROOT);
+            if (ttlMillis <= 0 || !(scope.equals("player") || scope.equals("global"))) return player -> "-1";
+            String id = id(ttlMillis, scope.equals("global"), args.get(3));
+            return player -> field(DEFINITIONS.get(id), field);
+        });
+    }
+
+    /**
+     * 读取配置项 {@code cache.max-entries} 与 {@code cache.loading-text}。
+     *
+     * @param expansion 扩展实例，用于读取配置
+     */
+    static void start(ExpansionUtil expansion) {
+        maxEntries = Math.max(1, expansion.settings().getInt("cache.max-entries", 4096));
+        loadingText = expansion.settings().getString("cache.loading-text", "...");
+    }
+
+    /** 清空所有缓存项与统计 */
+    static void stop() {
+        DEFINITIONS.clear();
+        SIZE.set(0);
+    }
+
+    /** @return 秒数或时长字符串对应的毫秒数，无法解析时返回 -1 */
+    private static long ttlMillis(String ttl) {
+        long seconds;
+        if (!ttl.isEmpty() && ttl.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            try {
+                seconds = Long.parseLong(ttl);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        } else {
+            seconds = DurationParser.parseToSeconds(ttl);
+        }
+        return seconds > 0 ? seconds * 1000L : -1;
+    }
+
+    /** @return 定义标识：有效期、范围与内部占位符 */
+    private static String id(long ttlMillis, boolean global, String source) {
+        return ttlMillis + (global ? ":global:" : ":player:") + source;
+    }
+
+    /**
+     * @param definition 定义，还没有请求过（或已被清空）时为 {@code null}
+     * @param field      hits、misses、ratio（命中率百分比）
+     * @return 该定义的字段值，未知字段返回 -1
+     */
+    private static String field(Definition definition, String field) {
+        long hit = definition == null ? 0 : definition.hits.sum();
+        long miss = definition == null ? 0 : definition.misses.sum();
+        switch (field) {
+            case "hits": return String.valueOf(hit);
+            case "misses": return String.valueOf(miss);
+            case "ratio": return String.format(Locale.ROOT, "%.2f", hit + miss == 0 ? 0.0 : hit * 100.0 / (hit + miss));
+            default: return "-1";
+        }
+    }
+
+    private static Definition definition(String id) {
+        Definition definition = DEFINITIONS.get(id);
+        if (definition == null) {
+            if (DEFINITIONS.size() >= MAX_DEFINITIONS) stop();
+            definition = DEFINITIONS.computeIfAbsent(id, key -> new Definition());
+        }
+        return definition;
+    }
+
+    /** 新建缓存项，总数超出上限时淘汰；淘汰跟不上、总数达到上限两倍时新的缓存项不保存 */
+    private static Value insert(Definition definition, UUID owner) {
+        Value created = new Value();
+        if (SIZE.get() >= 2L * maxEntries) {
+            evict();
+            return created;
+        }
+        Value existing = definition.entries.putIfAbsent(owner, created);
+        if (existing != null) return existing;
+        if (SIZE.incrementAndGet() > maxEntries) evict();
+        return created;
+    }
+
+    /**
+     * 淘汰最久未访问的缓存项，使总数回到上限的 7/8：收集所有访问时间排序得到阈值，再移除不晚于阈值的缓存项；
+     * 收集之后又被访问的缓存项不再满足阈值，数量仍然不足时再任意移除，保证总数回到上限以内。
+     * 同一时间只有一个线程执行，其它线程直接返回；被淘汰的缓存项若正在使用，本次结果不再保存。
+     */
+    private static void evict() {
+        if (!EVICTING.compareAndSet(false, true)) return;
+        try {
+            int limit = maxEntries;
+            long[] stamps = new long[Math.max(16, SIZE.get())];
+            int count = 0;
+            for (Definition definition : DEFINITIONS.values()) {
+                for (Value value : definition.entries.values()) {
+                    if (count == stamps.length) stamps = Arrays.copyOf(stamps, count * 2);
+                    stamps[count++] = value.accessedAt;
+                }
+            }
+            int excess = count - (limit - limit / 8);
+            if (excess <= 0) {
+                // 计数因并发或清空而偏离时以实际数量为准
+                SIZE.set(count);
+                return;
+            }
+            Arrays.sort(stamps, 0, count);
+            int removed = remove(stamps[excess - 1], excess);
+            if (removed < excess) removed += remove(Long.MAX_VALUE, excess - removed);
+            SIZE.addAndGet(-removed);
+        } finally {
+            EVICTING.set(false);
+        }
+    }
+
+    /** @return 移除的缓存项数量，最多 {@code limit} 个访问时间不晚于 {@code cutoff} 的缓存项 */
+    private static int remove(long cutoff, int limit) {
+        int removed = 0;
+        for (Definition definition : DEFINITIONS.values()) {
+            Iterator<Map.Entry<UUID, Value>> iterator = definition.entries.entrySet().iterator();
+            while (iterator.hasNext() && removed < limit) {
+                Map.Entry<UUID, Value> entry = iterator.next();
+                if (entry.getValue().accessedAt <= cutoff && definition.entries.remove(entry.getKey(), entry.getValue())) {
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /** {@code cache.<ttl>.<scope>."{...}"} 的执行计划 */
+    private static final class Cached implements PlaceholderPlan {
+
+        /** 定义标识：有效期、范围与内部占位符 */
+        private final String id;
+        private final Template template;
+        private final long ttlMillis;
+        private final boolean global;
+
+        private Cached(String source, long ttlMillis, boolean global) {
+            this.id = id(ttlMillis, global, source);
+            this.template = Template.compile(source);
+            this.ttlMillis = ttlMillis;
+            this.global = global;
+        }
+
+        @Override
+        public String apply(Player player) {
+            Definition definition = definition(id);
+            UUID owner = global || player == null ? SHARED : player.getUniqueId();
+            Value entry = definition.entries.get(owner);
+            if (entry == null) entry = insert(definition, owner);
+            long now = System.currentTimeMillis();
+            entry.accessedAt = now;
+            String value = entry.value;
+            if (value != null && (now < entry.expiresAt || !entry.refreshing.compareAndSet(false, true))) {
+                // 未过期，或其它线程正在重新求值：返回当前值
+                definition.hits.increment();
+                return value;
+            }
+            if (value != null) {
+                try {
+                    return evaluate(entry, player, definition);
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            }
+            // 第一次求值：主线程不等待其它线程（内部占位符可能很慢），异步线程等待结果
+            ReentrantLock loading = entry.loading;
+            if (!Bukkit.isPrimaryThread()) {
+                loading.lock();
+            } else if (!loading.tryLock()) {
+                return loadingText;
+            }
+            try {
+                value = entry.value;
+                if (value != null) {
+                    definition.hits.increment();
+                    return value;
+                }
+                return evaluate(entry, player, definition);
+            } finally {
+                loading.unlock();
+            }
+        }
+
+        private String evaluate(Value entry, Player player, Definition definition) {
+            definition.misses.increment();
+            String value = template.render(player);
+            entry.expiresAt = System.currentTimeMillis() + ttlMillis;
+            entry.value = value;
+            return value;
+        }
+
+        @Override
+        public boolean isGlobal() {
+            return global;
+        }
+    }
+
+    /** 内部占位符、有效期与范围相同的缓存项及其命中统计 */
+    private static final class Definition {
+
+        /** 玩家 UUID（全服共用时为 {@link #SHARED}）-> 缓存项 */
+        private final Map<UUID, Value> entries = new ConcurrentHashMap<>();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+    }
+
+    /** 一个缓存项 */
+    private static final class Value {
+
+        /** 第一次求值完成前为 {@code null} */
+        private volatile String value;
+        private volatile long expiresAt;
+        /** 最近一次访问的时间，用于淘汰 */
+        private volatile long accessedAt = System.currentTimeMillis();
+        /** 过期后是否已有线程在重新求值 */
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        /** 第一次求值时持有 */
+        private final ReentrantLock loading = new ReentrantLock();
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.MaddyJace.util;
+
+import java.util.List;
+
+/**
+ * 子占位符编译器。
+ * <p>
+ * 各功能模块通过 {@link PlaceholderRegistry#register(String, int, PlaceholderCompiler)}
+ * 注册编译器，编译器在占位符首次出现时把参数解析为 {@link PlaceholderPlan}。
+ * </p>
+ */
+@FunctionalInterface
+public interface PlaceholderCompiler {
+
+    /**
+     * 将参数编译为执行计划。
+     *
+     * @param args 占位符名称之后的参数（已去除引号），数量不少于注册时声明的参数个数
+     * @return 不可变的执行计划
+     */
+    PlaceholderPlan compile(List<String> args);
+
+}
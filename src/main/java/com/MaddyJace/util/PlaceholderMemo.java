@@ -0,0 +1,230 @@
+package com.MaddyJace.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 占位符结果的记忆化层。
+ * <p>
+ * 像 {@code %mut_diffDays.second."00:00:00".true%}、{@code %mut_getTheWeek%} 这样的结果
+ * 在同一时刻对所有玩家都相同，没有必要为每个玩家重复计算。
+ * 计算源在返回结果的同时给出结果的过期时间（例如以秒为单位时，到下一次数值变化为止），
+ * 结果以不可变的 {@link Snapshot} 通过 volatile 字段发布，任何线程都可以无锁读取；
+ * 过期后由第一个请求的线程重新计算，并发时最多重复计算一次，不会阻塞。
+ * </p>
+ * <p>
+ * 与玩家相关的占位符可以通过 {@link #perPlayer(Source)} 按玩家 UUID 单独记忆，
+ * 玩家退出时清除其在所有计划中的结果。
+ * </p>
+ */
+public final class PlaceholderMemo {
+
+    /** 一个服务器 tick 的毫秒数，也是所有记忆结果的最短有效期 */
+    public static final long TICK_MILLIS = 50L;
+
+    /** 按玩家记忆时每个计划最多保存的玩家数，超出后整体清空 */
+    private static final int MAX_PLAYERS = 1024;
+
+    /** 所有按玩家记忆的计划，计划不再使用（被回收）后自动移除 */
+    private static final Set<PerPlayer> PER_PLAYER = Collections.newSetFromMap(Collections.synchronizedMap(new WeakHashMap<>()));
+
+    private static QuitListener quitListener;
+
+    private PlaceholderMemo() {}
+
+    /**
+     * 注册玩家退出监听器。
+     *
+     * @param expansion 扩展实例，用于注册监听器
+     */
+    static void start(ExpansionUtil expansion) {
+        QuitListener listener = new QuitListener();
+        Bukkit.getPluginManager().registerEvents(listener, expansion.host());
+        quitListener = listener;
+    }
+
+    /** 注销玩家退出监听器 */
+    static void stop() {
+        QuitListener listener = quitListener;
+        quitListener = null;
+        if (listener != null) HandlerList.unregisterAll(listener);
+    }
+
+    /** 清除玩家在所有按玩家记忆的计划中的结果 */
+    private static void forget(UUID player) {
+        PerPlayer[] plans;
+        synchronized (PER_PLAYER) {
+            plans = PER_PLAYER.toArray(new PerPlayer[0]);
+        }
+        for (PerPlayer plan : plans) {
+            plan.snapshots.remove(player);
+        }
+    }
+
+    /**
+     * 带过期时间的计算源。
+     */
+    @FunctionalInterface
+    public interface Source {
+
+        /**
+         * 计算占位符结果。
+         *
+         * @param player 请求该占位符的玩家对象，可为 {@code null}
+         * @param now    当前时间（毫秒）
+         * @return 结果与过期时间
+         */
+        Snapshot compute(Player player, long now);
+    }
+
+    /**
+     * 不可变的记忆结果。
+     */
+    public static final class Snapshot {
+
+        private final String value;
+        private final long expiresAt;
+
+        /**
+         * @param value     结果字符串
+         * @param expiresAt 过期时间（毫秒，不含），早于一个 tick 时按一个 tick 计算
+         */
+        public Snapshot(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        public String value() {
+            return value;
+        }
+
+        /** @return 过期时间（毫秒，不含） */
+        long expiresAt() {
+            return expiresAt;
+        }
+    }
+
+    /**
+     * 创建与玩家无关的记忆化计划，所有玩家共享同一个结果。
+     *
+     * @param source 计算源
+     * @return 记忆化计划
+     */
+    public static PlaceholderPlan global(Source source) {
+        return new Global(source);
+    }
+
+    /**
+     * 创建与玩家无关的记忆化计划，结果最多每个 tick 计算一次。
+     *
+     * @param plan 原始计划
+     * @return 记忆化计划
+     */
+    public static PlaceholderPlan global(PlaceholderPlan plan) {
+        return new Global(perTick(plan));
+    }
+
+    /**
+     * 创建按玩家记忆的计划。
+     *
+     * @param source 计算源
+     * @return 记忆化计划
+     */
+    public static PlaceholderPlan perPlayer(Source source) {
+        return new PerPlayer(source);
+    }
+
+    /**
+     * 创建按玩家记忆的计划，每个玩家的结果最多每个 tick 计算一次。
+     *
+     * @param plan 原始计划
+     * @return 记忆化计划
+     */
+    public static PlaceholderPlan perPlayer(PlaceholderPlan plan) {
+        return new PerPlayer(perTick(plan));
+    }
+
+    private static Source perTick(PlaceholderPlan plan) {
+        return (player, now) -> new Snapshot(plan.apply(player), now + TICK_MILLIS);
+    }
+
+    private static Snapshot compute(Source source, Player player, long now) {
+        Snapshot snapshot = source.compute(player, now);
+        if (snapshot.expiresAt < now + TICK_MILLIS) {
+            snapshot = new Snapshot(snapshot.value, now + TICK_MILLIS);
+        }
+        return snapshot;
+    }
+
+    private static final class Global implements PlaceholderPlan {
+
+        private final Source source;
+        private volatile Snapshot current;
+
+        private Global(Source source) {
+            this.source = source;
+        }
+
+        @Override
+        public String apply(Player player) {
+            long now = System.currentTimeMillis();
+            Snapshot snapshot = current;
+            if (snapshot == null || now >= snapshot.expiresAt) {
+                snapshot = compute(source, player, now);
+                current = snapshot;
+            }
+            return snapshot.value;
+        }
+
+        @Override
+        public boolean isGlobal() {
+            return true;
+        }
+    }
+
+    private static final class PerPlayer implements PlaceholderPlan {
+
+        private final Source source;
+        private final Map<UUID, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+        private PerPlayer(Source source) {
+            this.source = source;
+            PER_PLAYER.add(this);
+        }
+
+        @Override
+        public String apply(Player player) {
+            long now = System.currentTimeMillis();
+            if (player == null) return source.compute(null, now).value;
+            UUID key = player.getUniqueId();
+            Snapshot snapshot = snapshots.get(key);
+            if (snapshot == null || now >= snapshot.expiresAt) {
+                snapshot = compute(source, player, now);
+                if (snapshots.size() >= MAX_PLAYERS) snapshots.clear();
+                snapshots.put(key, snapshot);
+            }
+            return snapshot.value;
+        }
+    }
+
+    static final class QuitListener implements Listener {
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onQuit(PlayerQuitEvent event) {
+            forget(event.getPlayer().getUniqueId());
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.MaddyJace.util;
+
+import org.bukkit.entity.Player;
+
+/**
+ * 已编译的占位符执行计划。
+ * <p>
+ * 每个不同的占位符参数字符串只会被解析一次，解析结果（处理方法、时间单位、
+ * 目标时间、格式化器、整数参数等）固化在计划中，之后的每次请求只需直接调用
+ * {@link #apply(Player)}。
+ * </p>
+ * <p>实现必须是不可变且线程安全的。</p>
+ */
+@FunctionalInterface
+public interface PlaceholderPlan {
+
+    /**
+     * 执行计划并返回占位符结果。
+     *
+     * @param player 请求该占位符的玩家对象，可为 {@code null}
+     * @return 替换结果字符串
+     */
+    String apply(Player player);
+
+    /**
+     * 结果是否与玩家无关，为 {@code true} 时批量求值只计算一次并共享给所有玩家。
+     *
+     * @return 默认返回 {@code false}
+     */
+    default boolean isGlobal() {
+        return false;
+    }
+
+}
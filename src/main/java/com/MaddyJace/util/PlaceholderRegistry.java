@@ -0,0 +1,101 @@
+package com.MaddyJace.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 占位符处理器注册表。
+ * <p>
+ * 各功能模块（{@link TimeUtils}、{@link AuthMe}、{@link BukkitUtils}、{@link ItemUtils}、
+ * {@link DurationParser}）在扩展初始化时注册自己的子占位符，名称不区分大小写，
+ * 可以是单级名称（例如 {@code diffDays}），也可以是两级名称（例如 {@code authMe.registered}）。
+ * </p>
+ * <p>
+ * 注册完成后注册表只读，查找为一次哈希表访问；名称不存在或参数不足时返回
+ * 常量计划 {@link #INVALID}，不会落入其它模块。
+ * </p>
+ */
+public final class PlaceholderRegistry {
+
+    /** 参数无效时返回的常量计划 */
+    public static final PlaceholderPlan INVALID = player -> "The parameter you entered does not exist.";
+
+    /** 小写名称 -> 处理器 */
+    private final Map<String, Handler> handlers = new HashMap<>();
+
+    /**
+     * 注册子占位符。
+     *
+     * @param name     占位符名称，例如 {@code diffDays} 或 {@code authMe.registered}
+     * @param arity    名称之后至少需要的参数个数
+     * @param compiler 参数编译器
+     * @return 当前注册表，便于链式调用
+     * @throws IllegalArgumentException 名称已被注册
+     */
+    public PlaceholderRegistry register(String name, int arity, PlaceholderCompiler compiler) {
+        String key = name.toLowerCase(Locale.ROOT);
+        if (handlers.putIfAbsent(key, new Handler(name, arity, compiler)) != null) {
+            throw new IllegalArgumentException("Duplicate placeholder: " + name);
+        }
+        return this;
+    }
+
+    /**
+     * 将分割后的占位符参数编译为执行计划。
+     * <p>优先匹配两级名称，再匹配单级名称。</p>
+     *
+     * @param tokens 分割后的占位符参数
+     * @return 执行计划，无法匹配时返回 {@link #INVALID}
+     */
+    public PlaceholderPlan compile(List<String> tokens) {
+        Handler handler = lookup(tokens);
+        if (handler == null) return INVALID;
+        return handler.compile(tokens.subList(handler.depth(), tokens.size()));
+    }
+
+    /**
+     * 获取占位符参数匹配到的注册名称。
+     *
+     * @param tokens 分割后的占位符参数
+     * @return 注册时使用的名称，例如 {@code authMe.registered}；无法匹配时返回 {@code null}
+     */
+    public String name(List<String> tokens) {
+        Handler handler = lookup(tokens);
+        return handler == null ? null : handler.name;
+    }
+
+    private Handler lookup(List<String> tokens) {
+        if (tokens.isEmpty()) return null;
+        String head = tokens.get(0).toLowerCase(Locale.ROOT);
+        if (tokens.size() >= 2) {
+            Handler handler = handlers.get(head + '.' + tokens.get(1).toLowerCase(Locale.ROOT));
+            if (handler != null) return handler;
+        }
+        return handlers.get(head);
+    }
+
+    private static final class Handler {
+
+        private final String name;
+        private final int arity;
+        private final PlaceholderCompiler compiler;
+
+        private Handler(String name, int arity, PlaceholderCompiler compiler) {
+            this.name = name;
+            this.arity = arity;
+            this.compiler = compiler;
+        }
+
+        /** @return 名称占用的参数个数 */
+        private int depth() {
+            return name.indexOf('.') >= 0 ? 2 : 1;
+        }
+
+        private PlaceholderPlan compile(List<String> args) {
+            return args.size() < arity ? INVALID : compiler.compile(args);
+        }
+    }
+
+}
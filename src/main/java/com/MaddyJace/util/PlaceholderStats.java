@@ -0,0 +1,316 @@
+package com.MaddyJace.util;
+
+import fr.xephi.authme.api.v3.AuthMePlayer;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 占位符调用统计。
+ * <p>
+ * 配置项 {@code metrics.enabled} 为 true 时，每个已编译的计划在编译时被包装一层计时，
+ * 按注册名称（例如 {@code authMe.registered}）累计调用次数、主线程/异步线程调用次数与耗时；
+ * 计数器使用分段的 {@link LongAdder}，耗时按 2 的幂分桶，用于估算 p50/p99。
+ * AuthMe 的查询耗时单独记录在 {@code authMe.api} 下。
+ * 关闭时计划不会被包装，调用路径上没有任何额外开销。
+ * </p>
+ * <p>统计结果通过 {@code %mut_stats.*%} 读取，并按 {@code metrics.log-interval-seconds} 定时输出到日志。</p>
+ */
+public final class PlaceholderStats {
+
+    /** AuthMe 查询耗时的统计名称 */
+    static final String AUTHME_API = "authMe.api";
+
+    /** 统计输出到日志时最多列出的条目数 */
+    private static final int MAX_LOGGED = 20;
+
+    private static volatile Recorder recorder;
+    private static BukkitTask logTask;
+    private static AuthMeSource wrappedSource;
+
+    private PlaceholderStats() {}
+
+    /**
+     * 注册 {@code stats} 占位符。
+     * <ul>
+     *     <li>{@code %mut_stats.<field>.<name>%}：field 为 calls、main、async、avg、p50、p99、max，
+     *     耗时单位为微秒，name 为注册名称，例如 {@code %mut_stats.p99.authMe.registered%}；</li>
+     *     <li>{@code %mut_stats.planHitRatio%}：计划缓存命中率（百分比）；</li>
+     *     <li>{@code %mut_stats.enabled%}：统计是否开启。</li>
+     * </ul>
+     * 统计关闭时数值类字段返回 -1。
+     *
+     * @param registry 占位符注册表
+     */
+    static void register(PlaceholderRegistry registry) {
+        registry.register("stats", 1, args -> {
+            String field = args.get(0).toLowerCase(Locale.ROOT);
+            if (field.equals("enabled")) return player -> String.valueOf(recorder != null);
+            if (field.equals("planhitratio")) return player -> {
+                Recorder current = recorder;
+                return current == null ? "-1" : String.format(Locale.ROOT, "%.2f", current.planHitRatio() * 100);
+            };
+            if (args.size() < 2 || !isField(field)) return PlaceholderRegistry.INVALID;
+            String name = String.join(".", args.subList(1, args.size())).toLowerCase(Locale.ROOT);
+            return player -> {
+                Recorder current = recorder;
+                if (current == null) return "-1";
+                Stats stats = current.stats.get(name);
+                return String.valueOf(stats == null ? 0 : stats.field(field));
+            };
+        });
+    }
+
+    private static boolean isField(String field) {
+        switch (field) {
+            case "calls": case "main": case "async": case "avg": case "p50": case "p99": case "max":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 按配置启用统计，并包装 AuthMe 查询入口、启动日志输出任务。
+     *
+     * @param expansion 扩展实例，用于读取配置与输出日志
+     */
+    static void start(ExpansionUtil expansion) {
+        stop();
+        ConfigurationSection settings = expansion.settings();
+        if (!settings.getBoolean("metrics.enabled", false)) return;
+        Recorder created = new Recorder();
+        recorder = created;
+
+        AuthMeSource source = new TimedAuthMeSource(AuthMe.source(), created.stats(AUTHME_API));
+        AuthMe.setSource(source);
+        wrappedSource = source;
+
+        long interval = settings.getLong("metrics.log-interval-seconds", 300);
+        if (interval > 0) {
+            long ticks = TimeUnit.SECONDS.toMillis(interval) / PlaceholderMemo.TICK_MILLIS;
+            logTask = Bukkit.getScheduler().runTaskTimerAsynchronously(expansion.host(),
+                    () -> dump(expansion), ticks, ticks);
+        }
+    }
+
+    /** 停止统计，恢复 AuthMe 查询入口 */
+    static void stop() {
+        recorder = null;
+        if (logTask != null) {
+            logTask.cancel();
+            logTask = null;
+        }
+        if (wrappedSource != null) {
+            if (AuthMe.source() == wrappedSource) AuthMe.setSource(((TimedAuthMeSource) wrappedSource).delegate);
+            wrappedSource = null;
+        }
+    }
+
+    /** @return 统计是否开启 */
+    static boolean isEnabled() {
+        return recorder != null;
+    }
+
+    /**
+     * 为计划包装计时；统计关闭或名称未知时原样返回。
+     *
+     * @param name 注册名称
+     * @param plan 已编译的计划
+     * @return 包装后的计划
+     */
+    static PlaceholderPlan instrument(String name, PlaceholderPlan plan) {
+        Recorder current = recorder;
+        if (current == null) return plan;
+        if (name == null || name.equals("stats")) return plan;
+        current.compiles.increment();
+        return new TimedPlan(plan, current.stats(name));
+    }
+
+    private static void dump(ExpansionUtil expansion) {
+        Recorder current = recorder;
+        if (current == null) return;
+        List<Stats> all = new ArrayList<>(current.stats.values());
+        all.removeIf(stats -> stats.calls.sum() == 0);
+        if (all.isEmpty()) return;
+        all.sort((a, b) -> Long.compare(b.totalNanos.sum(), a.totalNanos.sum()));
+        expansion.info(String.format(Locale.ROOT, "Placeholder stats (plan cache hit ratio %.2f%%):",
+                current.planHitRatio() * 100));
+        for (Stats stats : all.subList(0, Math.min(MAX_LOGGED, all.size()))) {
+            expansion.info(String.format(Locale.ROOT,
+                    "  %s calls=%d main=%d async=%d total=%dms avg=%dus p50=%dus p99=%dus max=%dus",
+                    stats.name, stats.field("calls"), stats.field("main"), stats.field("async"),
+                    TimeUnit.NANOSECONDS.toMillis(stats.totalNanos.sum()),
+                    stats.field("avg"), stats.field("p50"), stats.field("p99"), stats.field("max")));
+        }
+    }
+
+    /** 一次启用期间的全部统计 */
+    private static final class Recorder {
+
+        /** 小写注册名称 -> 统计 */
+        private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+        /** 计划编译次数，即计划缓存未命中次数 */
+        private final LongAdder compiles = new LongAdder();
+
+        private Stats stats(String name) {
+            return stats.computeIfAbsent(name.toLowerCase(Locale.ROOT), k -> new Stats(name));
+        }
+
+        private double planHitRatio() {
+            long calls = 0;
+            for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+                if (!entry.getKey().equals(AUTHME_API.toLowerCase(Locale.ROOT))) calls += entry.getValue().calls.sum();
+            }
+            long misses = compiles.sum();
+            return calls == 0 ? 0 : Math.max(0, 1 - (double) misses / calls);
+        }
+    }
+
+    /** 单个名称的统计，所有字段都可以并发累加 */
+    private static final class Stats {
+
+        /** 耗时分桶数：第 i 个桶为 [2^i, 2^(i+1)) 纳秒 */
+        private static final int BUCKETS = 48;
+
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder mainCalls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        private Stats(String name) {
+            this.name = name;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(long nanos) {
+            calls.increment();
+            if (Bukkit.isPrimaryThread()) mainCalls.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            int bucket = 63 - Long.numberOfLeadingZeros(Math.max(1, nanos));
+            buckets[Math.min(BUCKETS - 1, bucket)].increment();
+        }
+
+        /** @return 指定字段的值，耗时单位为微秒 */
+        private long field(String field) {
+            switch (field) {
+                case "calls": return calls.sum();
+                case "main": return mainCalls.sum();
+                case "async": return Math.max(0, calls.sum() - mainCalls.sum());
+                case "avg": {
+                    long count = calls.sum();
+                    return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.sum() / count);
+                }
+                case "p50": return TimeUnit.NANOSECONDS.toMicros(percentile(0.50));
+                case "p99": return TimeUnit.NANOSECONDS.toMicros(percentile(0.99));
+                case "max": return TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+                default: return 0;
+            }
+        }
+
+        /** @return 分位数所在桶的上界（纳秒），不超过最大值 */
+        private long percentile(double quantile) {
+            long total = 0;
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(maxNanos.get(), (1L << (i + 1)) - 1);
+            }
+            return maxNanos.get();
+        }
+    }
+
+    /** 记录耗时的计划，保留原计划是否与玩家无关 */
+    private static final class TimedPlan implements PlaceholderPlan {
+
+        private final PlaceholderPlan delegate;
+        private final Stats stats;
+
+        private TimedPlan(PlaceholderPlan delegate, Stats stats) {
+            this.delegate = delegate;
+            this.stats = stats;
+        }
+
+        @Override
+        public String apply(Player player) {
+            long start = System.nanoTime();
+            try {
+                return delegate.apply(player);
+            } finally {
+                stats.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public boolean isGlobal() {
+            return delegate.isGlobal();
+        }
+    }
+
+    /** 记录 AuthMe 查询耗时的查询入口 */
+    private static final class TimedAuthMeSource implements AuthMeSource {
+
+        private final AuthMeSource delegate;
+        private final Stats stats;
+
+        private TimedAuthMeSource(AuthMeSource delegate, Stats stats) {
+            this.delegate = delegate;
+            this.stats = stats;
+        }
+
+        @Override
+        public Optional<AuthMePlayer> playerInfo(String name) {
+            long start = System.nanoTime();
+            try {
+                return delegate.playerInfo(name);
+            } finally {
+                stats.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public List<String> namesByIp(String ip) {
+            long start = System.nanoTime();
+            try {
+                return delegate.namesByIp(ip);
+            } finally {
+                stats.record(System.nanoTime() - start);
+            }
+        }
+
+        /** 全表查询，不计入单次查询的耗时统计 */
+        @Override
+        public List<String> registeredNames() {
+            return delegate.registeredNames();
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return delegate.isAvailable();
+        }
+    }
+
+}
@@ -0,0 +1,588 @@
+package com.MaddyJace.util;
+
+import fr.xephi.authme.api.v3.AuthMePlayer;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 全部账号的注册时间索引。
+ * <p>
+ * 注册时间按升序保存在 {@code long[]} 中（不使用装箱集合），
+ * 注册排名与某段时间内的注册数都通过二分查找得到，查询复杂度 O(log n)。
+ * 注册、注销的更新不是 O(log n)：每次复制至多 {@link #MAX_DELTA} 个元素的增量数组，
+ * 约每 {@link #MAX_DELTA} 次更新再做一次 O(n) 合并，见下文。
+ * </p>
+ * <p>
+ * 索引在第一次被占位符使用时于后台构建：通过 {@link AuthMeLoader} 读取全部账号名称，
+ * 已记录在 {@link RegistrationStore} 中的注册时间直接读取，其余分批查询 AuthMe 并写入存储，
+ * 因此只有第一次构建需要逐个查询。之后由 {@link AuthMeEventListener} 在注册、注销时增量更新。
+ * </p>
+ * <p>
+ * 某一批中有查询失败（包括被熔断器拒绝）时，构建在该批结束后暂停：已收集的注册时间保留，
+ * 失败的账号与尚未查询的账号在 {@link #RETRY_NANOS} 后继续查询，不会从头开始。
+ * 连续 {@link #MAX_ATTEMPTS} 次仍未完成时照常发布快照，仍然失败的账号计入缺少注册时间的账号。
+ * </p>
+ * <p>
+ * 查询读取不可变快照，无锁。快照由构建时排序的基础数组与两个较小的增量数组（之后新增、移除的注册时间）组成，
+ * 注册或注销只复制增量数组，玩家原来的注册时间从名称哈希到注册时间的哈希表中以 O(1) 找到；
+ * 增量累积到 {@link #MAX_DELTA} 条后才合并进基础数组，合并的线性开销分摊到每次更新上，
+ * 即每次更新 O(log n + MAX_DELTA)，再加上均摊的 O(n / MAX_DELTA)。
+ * </p>
+ */
+final class RegistrationIndex {
+
+    /** 构建时每批并行查询的账号数，避免一次性占满加载器的队列 */
+    private static final int BATCH = 256;
+    /** 构建失败后再次尝试之前的等待时间 */
+    private static final long RETRY_NANOS = TimeUnit.MINUTES.toNanos(1);
+    /** 构建最多尝试的次数，之后发布缺少失败账号的快照 */
+    private static final int MAX_ATTEMPTS = 5;
+    /** 增量数组的总长度超过该值时合并进基础数组 */
+    private static final int MAX_DELTA = 1024;
+
+    private final AuthMeLoader loader;
+    /** 可为 {@code null} */
+    private final RegistrationStore store;
+    private final Consumer<String> info;
+    private final Consumer<String> warning;
+
+    /** 当前快照，构建完成前为 {@code null} */
+    private volatile Snapshot snapshot;
+    private final AtomicBoolean building = new AtomicBoolean();
+    /** 构建失败后为 {@code true}，此时在 {@link #retryAt} 之前不再尝试 */
+    private volatile boolean retryArmed;
+    private volatile long retryAt;
+    private volatile boolean closed;
+    /** 构建期间收到的更新，构建完成后按顺序重放；不在构建中时为 {@code null} */
+    private Builder pending;
+    /** 名称哈希 -> 注册时间，与 {@link #snapshot} 一起发布，只在持有锁时访问 */
+    private DateTable dates;
+    /** 未完成的构建，失败后保留以便重试时继续；只在持有锁时访问 */
+    private Progress progress;
+
+    /**
+     * @param loader  执行 AuthMe 查询的加载器
+     * @param store   持久化的注册时间表，可为 {@code null}
+     * @param info    构建完成时的日志输出
+     * @param warning 构建失败时的日志输出
+     */
+    RegistrationIndex(AuthMeLoader loader, RegistrationStore store, Consumer<String> info, Consumer<String> warning) {
+        this.loader = loader;
+        this.store = store;
+        this.info = info;
+        this.warning = warning;
+    }
+
+    /**
+     * 获取当前快照；尚未构建时在后台开始构建。
+     *
+     * @return 当前快照，构建完成前返回 {@code null}
+     */
+    Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null && !closed && (!retryArmed || System.nanoTime() - retryAt >= 0)
+                && building.compareAndSet(false, true)) {
+            build();
+        }
+        return current;
+    }
+
+    /**
+     * 记录新注册的账号，已有记录时替换注册时间。
+     *
+     * @param name   玩家名称，大小写不敏感
+     * @param millis 注册时间（纪元毫秒）
+     */
+    void registered(String name, long millis) {
+        update(RegistrationStore.hash(name), millis);
+    }
+
+    /**
+     * 移除已注销的账号。
+     *
+     * @param name 玩家名称，大小写不敏感
+     */
+    void unregistered(String name) {
+        update(RegistrationStore.hash(name), -1);
+    }
+
+    private synchronized void update(long key, long millis) {
+        if (pending != null) pending.add(key, millis);
+        if (snapshot != null) apply(key, millis);
+    }
+
+    /** 替换 {@code key} 的注册时间，{@code millis} 不为正数时移除；调用方持有锁 */
+    private void apply(long key, long millis) {
+        long old = dates.get(key);
+        long next = Math.max(0, millis);
+        if (old == next) return;
+        Snapshot updated = snapshot;
+        if (old > 0) updated = updated.without(old);
+        if (next > 0) {
+            dates.put(key, next);
+            updated = updated.plus(next);
+        } else {
+            dates.remove(key);
+        }
+        snapshot = updated.compactIfNeeded();
+    }
+
+    /** 停止构建并丢弃快照 */
+    synchronized void close() {
+        closed = true;
+        snapshot = null;
+        pending = null;
+        dates = null;
+        progress = null;
+    }
+
+    private void build() {
+        Progress resumed;
+        synchronized (this) {
+            // 重试之间收到的更新同样保留，直到发布时重放
+            if (pending == null) pending = new Builder(16);
+            resumed = progress;
+            progress = null;
+        }
+        CompletableFuture<Progress> ready = resumed != null
+                ? CompletableFuture.completedFuture(resumed)
+                : loader.registeredNames().thenApply(names -> new Progress(names == null ? Collections.<String>emptyList() : names));
+        Failures failures = new Failures();
+        ready.thenCompose(run -> {
+                    run.attempts++;
+                    return fill(run, 0, failures).thenApply(stop -> {
+                        run.resumeFrom(stop, failures.names());
+                        return run;
+                    });
+                })
+                .whenComplete((run, error) -> {
+                    if (error != null) {
+                        fail(error);
+                    } else if (!run.todo.isEmpty() && run.attempts < MAX_ATTEMPTS) {
+                        incomplete(run, failures);
+                    } else {
+                        complete(run, failures);
+                    }
+                });
+    }
+
+    /**
+     * 查询从 {@code from} 开始的账号，凑满一批需要查询 AuthMe 的账号后等待其完成再继续。
+     * 某一批中有查询失败时在该批结束后停止，失败的账号记录在 {@code failures} 中。
+     *
+     * @return 停止时下一个尚未处理的位置
+     */
+    private CompletableFuture<Integer> fill(Progress run, int from, Failures failures) {
+        List<String> names = run.todo;
+        Builder builder = run.builder;
+        List<CompletableFuture<Void>> queries = new ArrayList<>();
+        int next = from;
+        while (next < names.size() && queries.size() < BATCH && !closed) {
+            String name = names.get(next++);
+            long stored = store == null ? RegistrationStore.UNKNOWN : store.get(name);
+            if (stored > 0) {
+                builder.add(RegistrationStore.hash(name), stored);
+                continue;
+            }
+            queries.add(loader.playerInfo(name).handle((player, error) -> {
+                if (error != null) {
+                    failures.add(name, error);
+                    return null;
+                }
+                long millis = millis(player);
+                if (millis > 0) {
+                    builder.add(RegistrationStore.hash(name), millis);
+                    if (store != null) store.put(name, millis);
+                } else {
+                    builder.miss(1);
+                }
+                return null;
+            }));
+        }
+        int resume = next;
+        if (queries.isEmpty()) return CompletableFuture.completedFuture(resume);
+        return CompletableFuture.allOf(queries.toArray(new CompletableFuture<?>[0]))
+                .thenCompose(v -> failures.isEmpty() ? fill(run, resume, failures) : CompletableFuture.completedFuture(resume));
+    }
+
+    private static long millis(Optional<AuthMePlayer> info) {
+        if (info == null || !info.isPresent()) return -1;
+        Instant date = info.get().getRegistrationDate();
+        return date == null ? -1 : date.toEpochMilli();
+    }
+
+    /** 发布快照；达到最大尝试次数时仍未查询成功的账号计入缺失 */
+    private void complete(Progress run, Failures failures) {
+        int skipped = run.todo.size();
+        run.builder.miss(skipped);
+        Snapshot built = publish(run.builder);
+        if (built == null) return;
+        if (skipped > 0) {
+            warning.accept(String.format(Locale.ROOT,
+                    "Registration index published after %d attempts without %d accounts whose lookups kept failing (last: %s).",
+                    run.attempts, skipped, failures.describe()));
+        }
+        info.accept(String.format(Locale.ROOT,
+                "Registration index loaded %d accounts (%d without registration date) in %d ms.",
+                built.size(), run.builder.missing, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - run.start)));
+    }
+
+    /** @return 发布的快照；已关闭时返回 {@code null} */
+    private synchronized Snapshot publish(Builder builder) {
+        if (closed) return null;
+        dates = builder.table();
+        snapshot = Snapshot.of(dates.values());
+        // 构建期间的注册与注销可能早于或晚于读取账号列表，按顺序重放即可覆盖两种情况
+        for (int i = 0; i < pending.size; i++) {
+            apply(pending.keys[i], pending.dates[i]);
+        }
+        pending = null;
+        retryArmed = false;
+        building.set(false);
+        return snapshot;
+    }
+
+    /** 保留进度，稍后从失败的那一批继续 */
+    private synchronized void incomplete(Progress run, Failures failures) {
+        armRetry();
+        if (closed) return;
+        progress = run;
+        warning.accept(String.format(Locale.ROOT,
+                "Registration index build attempt %d/%d stopped: %s; %d accounts left, resuming in %d s.",
+                run.attempts, MAX_ATTEMPTS, failures.describe(), run.todo.size(), TimeUnit.NANOSECONDS.toSeconds(RETRY_NANOS)));
+    }
+
+    /** 读取账号列表失败，稍后重新读取 */
+    private synchronized void fail(Throwable error) {
+        armRetry();
+        if (closed) return;
+        warning.accept("Cannot build registration index: " + cause(error) + ", retrying in "
+                + TimeUnit.NANOSECONDS.toSeconds(RETRY_NANOS) + " s.");
+    }
+
+    private void armRetry() {
+        retryAt = System.nanoTime() + RETRY_NANOS;
+        retryArmed = true;
+        building.set(false);
+    }
+
+    private static Throwable cause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /** 跨重试保留的构建进度 */
+    private static final class Progress {
+
+        private final long start = System.nanoTime();
+        private final Builder builder;
+        /** 尚未成功处理的账号 */
+        private List<String> todo;
+        private int attempts;
+
+        private Progress(List<String> names) {
+            this.builder = new Builder(names.size());
+            this.todo = names;
+        }
+
+        /** 剩余账号改为本次失败的账号加上 {@code stop} 之后尚未处理的账号 */
+        private void resumeFrom(int stop, List<String> failed) {
+            if (failed.isEmpty() && stop >= todo.size()) {
+                todo = Collections.emptyList();
+                return;
+            }
+            List<String> remaining = new ArrayList<>(failed.size() + todo.size() - stop);
+            remaining.addAll(failed);
+            remaining.addAll(todo.subList(stop, todo.size()));
+            todo = remaining;
+        }
+    }
+
+    /** 一次尝试中失败的查询，可在多个加载线程上记录 */
+    private static final class Failures {
+
+        private final List<String> names = new ArrayList<>();
+        private int rejected;
+        private Throwable first;
+
+        private synchronized void add(String name, Throwable error) {
+            names.add(name);
+            Throwable cause = cause(error);
+            if (cause instanceof AuthMeCircuitBreaker.Rejected) {
+                rejected++;
+            } else if (first == null) {
+                first = cause;
+            }
+        }
+
+        private synchronized List<String> names() {
+            return new ArrayList<>(names);
+        }
+
+        private synchronized boolean isEmpty() {
+            return names.isEmpty();
+        }
+
+        private synchronized String describe() {
+            return String.format(Locale.ROOT, "%d lookups failed, %d rejected by the AuthMe circuit breaker%s",
+                    names.size(), rejected, first == null ? "" : ", first error: " + first);
+        }
+    }
+
+    /**
+     * 索引的不可变快照。
+     * <p>
+     * 账号的注册时间为 {@code base} 加上 {@code added} 再减去 {@code removed}（按多重集合计算），
+     * 三个数组均为升序，{@code removed} 中的值一定出现在 {@code base} 中。
+     * </p>
+     */
+    static final class Snapshot {
+
+        private static final long[] EMPTY = new long[0];
+
+        /** 构建或上次合并时的注册时间 */
+        private final long[] base;
+        /** 之后新增的注册时间 */
+        private final long[] added;
+        /** 之后从 {@link #base} 中移除的注册时间 */
+        private final long[] removed;
+
+        private Snapshot(long[] base, long[] added, long[] removed) {
+            this.base = base;
+            this.added = added;
+            this.removed = removed;
+        }
+
+        /** @return 包含全部注册时间（无序）的快照 */
+        private static Snapshot of(long[] dates) {
+            Arrays.sort(dates);
+            return new Snapshot(dates, EMPTY, EMPTY);
+        }
+
+        /** @return 账号数量 */
+        int size() {
+            return base.length + added.length - removed.length;
+        }
+
+        /**
+         * 计算注册排名：比该时间更早注册的账号数加一，同一时刻注册的账号排名相同。
+         *
+         * @param millis 注册时间（纪元毫秒）
+         * @return 从 1 开始的排名
+         */
+        int rank(long millis) {
+            return earlier(millis) + 1;
+        }
+
+        /**
+         * 统计在指定时间及之后注册的账号数。
+         *
+         * @param millis 起始时间（纪元毫秒）
+         * @return 账号数量
+         */
+        int countSince(long millis) {
+            return size() - earlier(millis);
+        }
+
+        /** @return 早于 {@code millis} 注册的账号数 */
+        private int earlier(long millis) {
+            return lowerBound(base, millis) + lowerBound(added, millis) - lowerBound(removed, millis);
+        }
+
+        private Snapshot plus(long millis) {
+            int index = lowerBound(removed, millis);
+            if (index < removed.length && removed[index] == millis) {
+                return new Snapshot(base, added, remove(removed, index));
+            }
+            return new Snapshot(base, insert(added, lowerBound(added, millis), millis), removed);
+        }
+
+        private Snapshot without(long millis) {
+            int index = lowerBound(added, millis);
+            if (index < added.length && added[index] == millis) {
+                return new Snapshot(base, remove(added, index), removed);
+            }
+            return new Snapshot(base, added, insert(removed, lowerBound(removed, millis), millis));
+        }
+
+        /** @return 增量过多时合并后的快照，否则返回自身 */
+        private Snapshot compactIfNeeded() {
+            if (added.length + removed.length <= MAX_DELTA) return this;
+            long[] merged = new long[size()];
+            int a = 0;
+            int r = 0;
+            int out = 0;
+            for (long value : base) {
+                if (r < removed.length && removed[r] == value) {
+                    r++;
+                    continue;
+                }
+                while (a < added.length && added[a] < value) merged[out++] = added[a++];
+                merged[out++] = value;
+            }
+            while (a < added.length) merged[out++] = added[a++];
+            return new Snapshot(merged, EMPTY, EMPTY);
+        }
+
+        /** @return 第一个不小于 {@code value} 的位置 */
+        private static int lowerBound(long[] values, long value) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private static long[] remove(long[] values, int index) {
+            long[] result = new long[values.length - 1];
+            System.arraycopy(values, 0, result, 0, index);
+            System.arraycopy(values, index + 1, result, index, values.length - index - 1);
+            return result;
+        }
+
+        private static long[] insert(long[] values, int index, long value) {
+            long[] result = new long[values.length + 1];
+            System.arraycopy(values, 0, result, 0, index);
+            result[index] = value;
+            System.arraycopy(values, index, result, index + 1, values.length - index);
+            return result;
+        }
+    }
+
+    /** 名称哈希到注册时间的开放寻址哈希表（线性探测），键不为 0，不装箱 */
+    private static final class DateTable {
+
+        private long[] keys;
+        private long[] values;
+        private int size;
+
+        private DateTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2) - 1) << 1;
+            this.keys = new long[capacity];
+            this.values = new long[capacity];
+        }
+
+        /** @return 注册时间，没有记录时返回 0 */
+        private long get(long key) {
+            int slot = find(keys, key);
+            return keys[slot] == key ? values[slot] : 0;
+        }
+
+        private void put(long key, long value) {
+            if ((size + 1) * 2 > keys.length) resize();
+            int slot = find(keys, key);
+            if (keys[slot] != key) {
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] = value;
+        }
+
+        /** 删除后将探测链上的后续记录前移，不使用墓碑 */
+        private void remove(long key) {
+            int slot = find(keys, key);
+            if (keys[slot] != key) return;
+            int mask = keys.length - 1;
+            int hole = slot;
+            for (int next = (hole + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+                int home = (int) keys[next] & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+            }
+            keys[hole] = 0;
+            values[hole] = 0;
+            size--;
+        }
+
+        /** @return 全部注册时间（无序） */
+        private long[] values() {
+            long[] result = new long[size];
+            int out = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != 0) result[out++] = values[slot];
+            }
+            return result;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new long[oldKeys.length * 2];
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] == 0) continue;
+                int target = find(keys, oldKeys[slot]);
+                keys[target] = oldKeys[slot];
+                values[target] = oldValues[slot];
+            }
+        }
+
+        /** @return {@code key} 所在的槽位，或探测到的第一个空槽位（表总有空槽位） */
+        private static int find(long[] keys, long key) {
+            int mask = keys.length - 1;
+            int slot = (int) key & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    /** 构建过程中收集记录，查询在多个加载线程上完成，写入串行化；也用于记录构建期间的更新 */
+    private static final class Builder {
+
+        private long[] keys;
+        private long[] dates;
+        private int size;
+        /** AuthMe 返回未注册或没有注册时间的账号数 */
+        private int missing;
+
+        private Builder(int capacity) {
+            this.keys = new long[Math.max(16, capacity)];
+            this.dates = new long[keys.length];
+        }
+
+        private synchronized void add(long key, long millis) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                dates = Arrays.copyOf(dates, size * 2);
+            }
+            keys[size] = key;
+            dates[size] = millis;
+            size++;
+        }
+
+        private synchronized void miss(int count) {
+            missing += count;
+        }
+
+        /** @return 名称哈希到注册时间的表，同一名称出现多次时以最后一次为准 */
+        private synchronized DateTable table() {
+            DateTable table = new DateTable(size);
+            for (int i = 0; i < size; i++) {
+                table.put(keys[i], dates[i]);
+            }
+            return table;
+        }
+    }
+
+}
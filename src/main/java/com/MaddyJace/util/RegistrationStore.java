@@ -0,0 +1,306 @@
+package com.MaddyJace.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 持久化的玩家注册时间表。
+ * <p>
+ * 注册时间不会改变，因此第一次从 AuthMe 读到后就写入本地文件，重启后直接从文件读取，
+ * 已知玩家的注册时间占位符不再访问 AuthMe。
+ * </p>
+ * <p>
+ * 文件通过内存映射访问，由 16 字节的文件头（魔数、版本、容量、已用槽位数）与定长记录组成，
+ * 每条记录为 16 字节：玩家名称（小写）的 64 位哈希与注册时间（纪元毫秒）。
+ * 记录按开放寻址（线性探测）排列，查询只计算哈希并读取映射内存，不分配对象；
+ * 启动时只需映射文件，不需要解析。
+ * </p>
+ * <p>
+ * 注销的账号不删除记录，而是将时间写为 {@link #TOMBSTONE}，保证探测链不断开，
+ * 同名玩家重新注册后覆盖同一条记录。使用率超过一半时容量翻倍。
+ * </p>
+ * <p>
+ * 文件名带有容量（例如 {@code mut-registrations-2048.dat}）：扩容时写入下一个容量的新文件，
+ * 不移动或覆盖仍被映射的旧文件（Windows 上无法替换已映射的文件），旧文件在能删除时删除；
+ * 打开时使用容量最大的有效文件，并清理其余文件。
+ * </p>
+ * <p>查询无锁，写入串行化；没有有效文件（版本变化等）时重新创建空表。</p>
+ */
+final class RegistrationStore {
+
+    /** 查询结果：没有记录或已注销 */
+    static final long UNKNOWN = -1;
+
+    private static final int MAGIC = 0x4D555452; // "MUTR"
+    private static final int VERSION = 1;
+    private static final int HEADER = 16;
+    private static final int RECORD = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+    /** 最大容量，约 6400 万字节 */
+    private static final int MAX_CAPACITY = 1 << 22;
+    /** 已注销记录的时间值 */
+    private static final long TOMBSTONE = -1;
+    /** 扩容失败后再次尝试之前的等待时间 */
+    private static final long GROW_RETRY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    /** 不带容量的文件路径，例如 {@code mut-registrations.dat} */
+    private final File file;
+    private final Consumer<String> warning;
+    private volatile Table table;
+    /** 容量已达上限，不再写入新玩家 */
+    private boolean full;
+    /** 扩容失败后为 {@code true}，此时在 {@link #growRetryAt} 之前不写入新玩家 */
+    private boolean growFailed;
+    private long growRetryAt;
+
+    private RegistrationStore(File file, Table table, Consumer<String> warning) {
+        this.file = file;
+        this.table = table;
+        this.warning = warning;
+    }
+
+    /**
+     * 打开或创建注册时间文件。
+     *
+     * @param file    不带容量的文件路径，实际文件名为 {@code <名称>-<容量>.<扩展名>}
+     * @param warning 扩容失败等情况的日志输出
+     * @return 注册时间表
+     * @throws IOException 文件无法创建或映射
+     */
+    static RegistrationStore open(File file, Consumer<String> warning) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory " + parent);
+        }
+        Table existing = null;
+        for (int capacity = MAX_CAPACITY; capacity >= INITIAL_CAPACITY && existing == null; capacity >>= 1) {
+            existing = Table.map(fileFor(file, capacity));
+        }
+        if (existing == null) existing = Table.map(file);
+        Table opened = existing != null ? existing : Table.create(fileFor(file, INITIAL_CAPACITY), INITIAL_CAPACITY);
+        // 清理其它容量的文件（扩容后未能删除的旧文件）
+        for (int capacity = MAX_CAPACITY; capacity >= INITIAL_CAPACITY; capacity >>= 1) {
+            File other = fileFor(file, capacity);
+            if (!other.equals(opened.file)) other.delete();
+        }
+        if (!file.equals(opened.file)) file.delete();
+        return new RegistrationStore(file, opened, warning);
+    }
+
+    /** @return 指定容量的文件，例如 {@code mut-registrations-2048.dat} */
+    private static File fileFor(File file, int capacity) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        return new File(file.getAbsoluteFile().getParentFile(), stem + "-" + capacity + extension);
+    }
+
+    /**
+     * 查询玩家的注册时间。
+     *
+     * @param name 玩家名称，大小写不敏感
+     * @return 注册时间（纪元毫秒），没有记录时返回 {@link #UNKNOWN}
+     */
+    long get(String name) {
+        Table current = table;
+        long key = hash(name);
+        int mask = current.capacity - 1;
+        int slot = (int) key & mask;
+        for (int i = 0; i <= mask; i++, slot = (slot + 1) & mask) {
+            long stored = current.key(slot);
+            if (stored == 0) return UNKNOWN;
+            if (stored == key) {
+                // 写入先写时间再写哈希，其它线程可能先看到哈希，此时时间为 0，按未命中处理
+                long millis = current.value(slot);
+                return millis > 0 ? millis : UNKNOWN;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * 记录玩家的注册时间，已有记录时覆盖。
+     *
+     * @param name   玩家名称，大小写不敏感
+     * @param millis 注册时间（纪元毫秒），必须为正数
+     */
+    synchronized void put(String name, long millis) {
+        if (millis <= 0) return;
+        write(hash(name), millis);
+    }
+
+    /**
+     * 将玩家标记为已注销，之后的查询返回 {@link #UNKNOWN}。
+     *
+     * @param name 玩家名称，大小写不敏感
+     */
+    synchronized void remove(String name) {
+        Table current = table;
+        int slot = current.find(hash(name));
+        if (slot >= 0 && current.key(slot) != 0) current.putValue(slot, TOMBSTONE);
+    }
+
+    private void write(long key, long millis) {
+        Table current = table;
+        int slot = current.find(key);
+        if (slot >= 0 && current.key(slot) == key) {
+            current.putValue(slot, millis);
+            return;
+        }
+        if (full || (growFailed && System.nanoTime() - growRetryAt < 0)) return;
+        if ((current.size() + 1) * 2 > current.capacity) {
+            current = grow(current);
+            if (current == null) return;
+            slot = current.find(key);
+        }
+        if (slot < 0) return;
+        current.putRecord(slot, key, millis);
+        current.setSize(current.size() + 1);
+    }
+
+    /** @return 扩容后的表；已达上限或失败时返回 {@code null} */
+    private Table grow(Table current) {
+        if (current.capacity >= MAX_CAPACITY) {
+            full = true;
+            warning.accept("Registration store reached " + MAX_CAPACITY / 2 + " players, new players are no longer persisted.");
+            return null;
+        }
+        File target = fileFor(file, current.capacity * 2);
+        try {
+            Table grown = Table.create(target, current.capacity * 2);
+            for (int slot = 0; slot < current.capacity; slot++) {
+                long key = current.key(slot);
+                if (key == 0) continue;
+                grown.putRecord(grown.find(key), key, current.value(slot));
+                grown.setSize(grown.size() + 1);
+            }
+            grown.buffer.force();
+            // 旧映射仍然有效，正在查询的线程不受影响；仍被映射的文件在部分系统上无法删除，留到下次打开时清理
+            table = grown;
+            current.file.delete();
+            growFailed = false;
+            return grown;
+        } catch (IOException e) {
+            target.delete();
+            growFailed = true;
+            growRetryAt = System.nanoTime() + GROW_RETRY_NANOS;
+            warning.accept("Cannot grow registration store to " + target + ": " + e.getMessage()
+                    + ", new players are not persisted for the next minute.");
+            return null;
+        }
+    }
+
+    /** 将映射内存写回磁盘 */
+    synchronized void close() {
+        table.buffer.force();
+    }
+
+    /** @return 已记录的玩家数量（包括已注销） */
+    int size() {
+        return table.size();
+    }
+
+    /**
+     * 计算玩家名称的 64 位哈希（FNV-1a 后再做一次位混合），不分配对象。
+     *
+     * @return 非 0 的哈希值，0 表示空槽位
+     */
+    static long hash(String name) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            h ^= Character.toLowerCase(name.charAt(i));
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    /** 一个映射的文件及其容量 */
+    private static final class Table {
+
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+
+        private Table(File file, MappedByteBuffer buffer, int capacity) {
+            this.file = file;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+
+        /** @return 已有文件的映射；文件不存在或文件头无效时返回 {@code null} */
+        private static Table map(File file) throws IOException {
+            if (!file.isFile() || file.length() < HEADER) return null;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                if (raf.readInt() != MAGIC || raf.readInt() != VERSION) return null;
+                int capacity = raf.readInt();
+                if (capacity < INITIAL_CAPACITY || capacity > MAX_CAPACITY || Integer.bitCount(capacity) != 1
+                        || raf.length() != HEADER + (long) capacity * RECORD) return null;
+                return new Table(file, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length()), capacity);
+            }
+        }
+
+        /** 创建（或覆盖）指定容量的空文件并映射 */
+        private static Table create(File file, int capacity) throws IOException {
+            long length = HEADER + (long) capacity * RECORD;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(0);
+                raf.setLength(length);
+                MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, capacity);
+                buffer.putInt(12, 0);
+                return new Table(file, buffer, capacity);
+            }
+        }
+
+        /** @return 哈希所在的槽位，或探测到的第一个空槽位；表已满时返回 -1 */
+        private int find(long key) {
+            int mask = capacity - 1;
+            int slot = (int) key & mask;
+            for (int i = 0; i <= mask; i++, slot = (slot + 1) & mask) {
+                long stored = key(slot);
+                if (stored == 0 || stored == key) return slot;
+            }
+            return -1;
+        }
+
+        private long key(int slot) {
+            return buffer.getLong(HEADER + slot * RECORD);
+        }
+
+        private long value(int slot) {
+            return buffer.getLong(HEADER + slot * RECORD + 8);
+        }
+
+        private void putValue(int slot, long value) {
+            buffer.putLong(HEADER + slot * RECORD + 8, value);
+        }
+
+        /** 先写时间再写哈希，并发查询看到哈希时时间通常已经写入 */
+        private void putRecord(int slot, long key, long value) {
+            putValue(slot, value);
+            buffer.putLong(HEADER + slot * RECORD, key);
+        }
+
+        private int size() {
+            return buffer.getInt(12);
+        }
+
+        private void setSize(int size) {
+            buffer.putInt(12, size);
+        }
+    }
+
+}
@@ -0,0 +1,224 @@
+package com.MaddyJace.util;
+
+import me.clip.placeholderapi.PlaceholderAPI;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * 已编译的 {@code {...}} 占位符模板。
+ * <p>
+ * 模板字符串只解析一次，得到由文本片段与占位符片段组成的列表并缓存；
+ * 占位符片段可以嵌套，渲染时由内向外依次交给 PlaceholderAPI 解析，
+ * 每个占位符片段只调用一次 {@link PlaceholderAPI#setPlaceholders(Player, String)}。
+ * 反斜杠转义的花括号（\{ 与 \}）表示普通的花括号，没有闭合的左花括号按普通文本处理。
+ * 渲染结果中的 {@code &} 会被替换为 {@code §}。
+ * </p>
+ * <p>渲染时每个线程复用同一个 {@link StringBuilder}，嵌套调用同样安全。</p>
+ */
+public final class Template {
+
+    /** 最多缓存的模板数，超出后整体清空 */
+    private static final int MAX_TEMPLATES = 512;
+
+    private static final Map<String, Template> CACHE = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    /** 占位符解析器，默认交给 PlaceholderAPI；基准测试等离线环境可以替换 */
+    private static volatile BiFunction<Player, String, String> resolver = PlaceholderAPI::setPlaceholders;
+
+    private final Segment[] segments;
+
+    private Template(Segment[] segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * 获取（必要时编译）模板。
+     *
+     * @param source 模板字符串
+     * @return 已编译的模板
+     */
+    public static Template compile(String source) {
+        Template template = CACHE.get(source);
+        if (template == null) {
+            if (CACHE.size() >= MAX_TEMPLATES) CACHE.clear();
+            template = new Parser(source).parse();
+            CACHE.put(source, template);
+        }
+        return template;
+    }
+
+    /**
+     * 通过当前的解析器解析字符串中的 {@code %...%} 占位符。
+     *
+     * @param player 玩家对象，可为 {@code null}
+     * @param text   含占位符的字符串
+     * @return 解析结果
+     */
+    static String setPlaceholders(Player player, String text) {
+        return resolver.apply(player, text);
+    }
+
+    /**
+     * 替换占位符解析器，传入 {@code null} 时恢复为 PlaceholderAPI。
+     *
+     * @param placeholderResolver 解析器
+     */
+    static void setResolver(BiFunction<Player, String, String> placeholderResolver) {
+        resolver = placeholderResolver == null ? PlaceholderAPI::setPlaceholders : placeholderResolver;
+    }
+
+    /**
+     * 为指定玩家渲染模板。
+     *
+     * @param player 玩家对象，可为 {@code null}
+     * @return 渲染结果
+     */
+    public String render(Player player) {
+        StringBuilder builder = BUFFER.get();
+        int base = builder.length();
+        try {
+            appendAll(segments, player, builder);
+            for (int i = base; i < builder.length(); i++) {
+                if (builder.charAt(i) == '&') builder.setCharAt(i, '§');
+            }
+            return builder.substring(base);
+        } finally {
+            builder.setLength(base);
+        }
+    }
+
+    private static void appendAll(Segment[] segments, Player player, StringBuilder builder) {
+        for (Segment segment : segments) {
+            segment.append(player, builder);
+        }
+    }
+
+    private interface Segment {
+        void append(Player player, StringBuilder builder);
+    }
+
+    private static final class Literal implements Segment {
+
+        private final String text;
+
+        private Literal(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void append(Player player, StringBuilder builder) {
+            builder.append(text);
+        }
+    }
+
+    private static final class Placeholder implements Segment {
+
+        /** 内部没有嵌套占位符时预先拼好的 {@code %...%}，否则为 {@code null} */
+        private final String constant;
+        private final Segment[] children;
+
+        private Placeholder(Segment[] children) {
+            this.children = children;
+            if (children.length == 0) {
+                this.constant = "%%";
+            } else if (children.length == 1 && children[0] instanceof Literal) {
+                this.constant = "%" + ((Literal) children[0]).text + "%";
+            } else {
+                this.constant = null;
+            }
+        }
+
+        @Override
+        public void append(Player player, StringBuilder builder) {
+            String placeholder = constant;
+            if (placeholder == null) {
+                // 先在同一个缓冲区中渲染内部内容，取出后再回退
+                int mark = builder.length();
+                builder.append('%');
+                appendAll(children, player, builder);
+                builder.append('%');
+                placeholder = builder.substring(mark);
+                builder.setLength(mark);
+            }
+            builder.append(setPlaceholders(player, placeholder));
+        }
+    }
+
+    /** 解析器：先用栈配对花括号，再按配对结果构建片段，整体为线性时间 */
+    private static final class Parser {
+
+        private final String source;
+        /** 左花括号位置 -> 对应右花括号位置，未配对为 -1 */
+        private final int[] closing;
+
+        private Parser(String source) {
+            this.source = source;
+            this.closing = new int[source.length()];
+        }
+
+        private Template parse() {
+            int[] stack = new int[16];
+            int depth = 0;
+            for (int i = 0; i < source.length(); i++) {
+                closing[i] = -1;
+                char c = source.charAt(i);
+                if (isEscape(i)) {
+                    closing[++i] = -1;
+                } else if (c == '{') {
+                    if (depth == stack.length) {
+                        int[] grown = new int[stack.length << 1];
+                        System.arraycopy(stack, 0, grown, 0, depth);
+                        stack = grown;
+                    }
+                    stack[depth++] = i;
+                } else if (c == '}' && depth > 0) {
+                    closing[stack[--depth]] = i;
+                }
+            }
+            return new Template(build(0, source.length()));
+        }
+
+        private Segment[] build(int from, int to) {
+            List<Segment> segments = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            int i = from;
+            while (i < to) {
+                char c = source.charAt(i);
+                if (isEscape(i)) {
+                    text.append(source.charAt(i + 1));
+                    i += 2;
+                } else if (c == '{' && closing[i] >= 0) {
+                    flush(segments, text);
+                    segments.add(new Placeholder(build(i + 1, closing[i])));
+                    i = closing[i] + 1;
+                } else {
+                    // 未配对的花括号按普通文本处理
+                    text.append(c);
+                    i++;
+                }
+            }
+            flush(segments, text);
+            return segments.toArray(new Segment[0]);
+        }
+
+        private boolean isEscape(int i) {
+            if (source.charAt(i) != '\\' || i + 1 >= source.length()) return false;
+            char next = source.charAt(i + 1);
+            return next == '{' || next == '}';
+        }
+
+        private static void flush(List<Segment> segments, StringBuilder text) {
+            if (text.length() == 0) return;
+            segments.add(new Literal(text.toString()));
+            text.setLength(0);
+        }
+    }
+
+}
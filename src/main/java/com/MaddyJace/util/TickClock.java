@@ -0,0 +1,45 @@
+package com.MaddyJace.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * 服务器 tick 计数器。
+ * <p>
+ * 由主线程上的定时任务每个 tick 递增一次，任意线程都可以读取，
+ * 用于判断缓存的玩家状态是否在当前 tick 之后计算。
+ * </p>
+ */
+public final class TickClock {
+
+    /** 只由主线程写入 */
+    private static volatile long tick;
+    private static BukkitTask task;
+
+    private TickClock() {}
+
+    /** @return 当前 tick 序号 */
+    public static long current() {
+        return tick;
+    }
+
+    /**
+     * 启动计数任务。
+     *
+     * @param plugin 用于调度任务的插件
+     */
+    static void start(Plugin plugin) {
+        stop();
+        task = Bukkit.getScheduler().runTaskTimer(plugin, () -> tick++, 1L, 1L);
+    }
+
+    /** 停止计数任务 */
+    static void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+}
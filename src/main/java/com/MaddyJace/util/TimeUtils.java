@@ -1,9 +1,7 @@
 package com.MaddyJace.util;
 
-import java.text.SimpleDateFormat;
 import java.time.*;
-import java.time.temporal.TemporalAdjusters;
-import java.util.Date;
+import java.time.format.DateTimeFormatter;
 import java.util.Locale;
 
 /**
@@ -14,7 +12,8 @@ import java.util.Locale;
  * </p>
  *
  * <p>
- * 所有计算均使用系统默认时区（{@link ZoneId#systemDefault()}）。
+ * 所有计算均使用 {@link CountdownEngine#zone()} 时区（默认为系统时区，可通过配置项 {@code time.zone} 修改），
+ * 倒计时目标由 {@link CountdownEngine} 解析并缓存，夏令时切换当天按真实经过的时间计算。
  * </p>
  *
  * <p>
@@ -32,9 +31,95 @@ import java.util.Locale;
  */
 public class TimeUtils {
 
+    /** 目标时间无效时使用的默认时间 */
+    private static final LocalTime END_OF_DAY = LocalTime.of(23, 59, 59);
+
+    /** 星期的英文全称，线程安全可共享 */
+    private static final DateTimeFormatter WEEK_FORMATTER = DateTimeFormatter.ofPattern("EEEE", Locale.ENGLISH);
+
     /** 私有构造方法，防止实例化 */
     private TimeUtils() {}
 
+    /**
+     * 读取时区配置。
+     *
+     * @param expansion 扩展实例，用于读取配置
+     */
+    static void start(ExpansionUtil expansion) {
+        String zone = expansion.settings().getString("time.zone", "");
+        if (zone == null || zone.trim().isEmpty()) {
+            CountdownEngine.setZone(null);
+            return;
+        }
+        try {
+            CountdownEngine.setZone(ZoneId.of(zone.trim()));
+        } catch (DateTimeException e) {
+            expansion.warning("Invalid time.zone '" + zone + "', falling back to the system default.");
+            CountdownEngine.setZone(null);
+        }
+    }
+
+    /**
+     * 注册时间计算相关的占位符。
+     *
+     * @param registry 占位符注册表
+     */
+    static void register(PlaceholderRegistry registry) {
+        registry.register("diffDays", 3, args -> {
+            LocalTime time = parseTime(args.get(1));
+            boolean isTomorrow = Boolean.parseBoolean(args.get(2));
+            return countdown(Unit.parse(args.get(0)), CountdownEngine.days(time, isTomorrow));
+        });
+        registry.register("diffWeeks", 3, args -> {
+            LocalTime time = parseTime(args.get(1));
+            int week = parseInt(args.get(2), 1);
+            return countdown(Unit.parse(args.get(0)), CountdownEngine.weeks(time, week));
+        });
+        registry.register("diffMonths", 3, args -> {
+            LocalTime time = parseTime(args.get(1));
+            int dayOfMonth = parseInt(args.get(2), 31);
+            return countdown(Unit.parse(args.get(0)), CountdownEngine.months(time, dayOfMonth));
+        });
+        registry.register("getTheWeek", 0, args -> PlaceholderMemo.global((player, now) -> {
+            ZoneId zone = CountdownEngine.zone();
+            LocalDate today = LocalDate.now(zone);
+            long midnight = today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            return new PlaceholderMemo.Snapshot(today.format(WEEK_FORMATTER), midnight);
+        }));
+    }
+
+    /**
+     * 创建倒计时占位符的记忆化计划。
+     * <p>
+     * 结果对所有玩家相同，并且只会在换算后的数值变化时才需要重新计算：
+     * 例如以秒为单位时，剩余毫秒数为 {@code d} 时结果在接下来的 {@code d % 1000} 毫秒内保持不变。
+     * 目标本身在 {@link CountdownEngine.Countdown#validUntil(long)} 时改变，结果最多保持到该时间点。
+     * </p>
+     *
+     * @param unit   返回的时间单位，为 {@code null} 时返回 -1
+     * @param target 倒计时目标
+     * @return 执行计划
+     */
+    private static PlaceholderPlan countdown(Unit unit, CountdownEngine.Countdown target) {
+        if (unit == null) return player -> "-1";
+        return PlaceholderMemo.global((player, now) -> countdownSnapshot(unit, target, now));
+    }
+
+    /**
+     * 计算倒计时在 {@code now} 时的结果与过期时间。
+     *
+     * @param unit   返回的时间单位
+     * @param target 倒计时目标
+     * @param now    当前时间（纪元毫秒）
+     * @return 结果与过期时间
+     */
+    static PlaceholderMemo.Snapshot countdownSnapshot(Unit unit, CountdownEngine.Countdown target, long now) {
+        long diff = target.remainingMillis(now);
+        long stable = diff > 0 ? diff % unit.toMillis() + 1 : 0;
+        long expiresAt = Math.min(now + stable, target.validUntil(now));
+        return new PlaceholderMemo.Snapshot(String.valueOf(unit.convert(diff)), expiresAt);
+    }
+
     /**
      * 计算距离当天（或次日）指定时间的时间差。
      * <p>
@@ -47,28 +132,25 @@ public class TimeUtils {
      * @return 当前时间与目标时间的差值，单位由 {@code unit} 指定
      */
     public static long diffDays(String timeStr, String unit, boolean isTomorrow) {
-        ZoneId zone = ZoneId.systemDefault();
-        LocalDateTime now = LocalDateTime.now(zone);
-
-        // 解析目标时间
-        LocalTime targetTime;
-        try {
-            targetTime = LocalTime.parse(timeStr);
-        } catch (Exception e) {
-            targetTime = LocalTime.parse("23:59:59");
-        }
-        LocalDate targetDate = isTomorrow ? LocalDate.now(zone).plusDays(1) : LocalDate.now(zone);
-
-        LocalDateTime targetDateTime = LocalDateTime.of(targetDate, targetTime);
+        return diffDays(parseTime(timeStr), Unit.parse(unit), isTomorrow);
+    }
 
-        // 如果是今天，且时间已经过去 -> 强制设为 23:59:59
-        if (!isTomorrow && targetDateTime.isBefore(now)) {
-            targetDateTime = LocalDateTime.of(LocalDate.now(zone), LocalTime.of(23, 59, 59));
-        }
+    /**
+     * {@link #diffDays(String, String, boolean)} 的预解析版本，供已编译的占位符直接调用。
+     *
+     * @param targetTime 目标时间
+     * @param unit       返回的时间单位，为 {@code null} 时返回 -1
+     * @param isTomorrow 是否计算到明天的时间（true 表示次日）
+     * @return 当前时间与目标时间的差值，单位由 {@code unit} 指定
+     */
+    public static long diffDays(LocalTime targetTime, Unit unit, boolean isTomorrow) {
+        if (unit == null) return -1;
+        return unit.convert(diffDaysMillis(targetTime, isTomorrow));
+    }
 
-        // 计算时间差（毫秒）
-        long diffMillis = Duration.between(now, targetDateTime).toMillis();
-        return unitConversion(diffMillis, unit);
+    /** 距离当天（或次日）指定时间的毫秒数 */
+    static long diffDaysMillis(LocalTime targetTime, boolean isTomorrow) {
+        return CountdownEngine.days(targetTime, isTomorrow).remainingMillis();
     }
 
 
@@ -84,24 +166,25 @@ public class TimeUtils {
      * @return 当前时间与下一个目标星期几的时间差，单位由 {@code unit} 指定
      */
     public static long diffWeeks(String timeStr, int week, String unit) {
-        ZoneId zone = ZoneId.systemDefault();
-        LocalDateTime now = LocalDateTime.now(zone);
-
-        LocalTime targetTime;
-        try {
-            targetTime = LocalTime.parse(timeStr);
-        } catch (Exception e) {
-            targetTime = LocalTime.parse("23:59:59");
-        }
-
-        DayOfWeek targetDay = (week >= 1 && week <= 7) ? DayOfWeek.of(week) : DayOfWeek.MONDAY;
-        LocalDate targetDate = LocalDate.now(zone).with(TemporalAdjusters.next(targetDay));
-
+        return diffWeeks(parseTime(timeStr), week, Unit.parse(unit));
+    }
 
-        LocalDateTime targetDateTime = LocalDateTime.of(targetDate, targetTime);
-        long diffMillis = Duration.between(now, targetDateTime).toMillis();
+    /**
+     * {@link #diffWeeks(String, int, String)} 的预解析版本，供已编译的占位符直接调用。
+     *
+     * @param targetTime 目标时间
+     * @param week       目标星期几（1=星期一，7=星期日）
+     * @param unit       返回的时间单位，为 {@code null} 时返回 -1
+     * @return 当前时间与下一个目标星期几的时间差，单位由 {@code unit} 指定
+     */
+    public static long diffWeeks(LocalTime targetTime, int week, Unit unit) {
+        if (unit == null) return -1;
+        return unit.convert(diffWeeksMillis(targetTime, week));
+    }
 
-        return unitConversion(diffMillis, unit);
+    /** 距离下一个指定星期几的毫秒数 */
+    static long diffWeeksMillis(LocalTime targetTime, int week) {
+        return CountdownEngine.weeks(targetTime, week).remainingMillis();
     }
 
     /**
@@ -116,22 +199,44 @@ public class TimeUtils {
      * @return 当前时间与下个月目标日期的时间差，单位由 {@code unit} 指定
      */
     public static long diffMonth(String timeStr, int dayOfMonth, String unit) {
-        ZoneId zone = ZoneId.systemDefault();
-        LocalDateTime now = LocalDateTime.now(zone);
+        return diffMonth(parseTime(timeStr), dayOfMonth, Unit.parse(unit));
+    }
+
+    /**
+     * {@link #diffMonth(String, int, String)} 的预解析版本，供已编译的占位符直接调用。
+     *
+     * @param targetTime 目标时间
+     * @param dayOfMonth 目标日期（1~31），超出该月最大天数时自动取最大天
+     * @param unit       返回的时间单位，为 {@code null} 时返回 -1
+     * @return 当前时间与下个月目标日期的时间差，单位由 {@code unit} 指定
+     */
+    public static long diffMonth(LocalTime targetTime, int dayOfMonth, Unit unit) {
+        if (unit == null) return -1;
+        return unit.convert(diffMonthMillis(targetTime, dayOfMonth));
+    }
+
+    /** 距离下个月指定日期的毫秒数 */
+    static long diffMonthMillis(LocalTime targetTime, int dayOfMonth) {
+        return CountdownEngine.months(targetTime, dayOfMonth).remainingMillis();
+    }
 
-        LocalTime targetTime;
+    /**
+     * 解析 {@code HH:mm:ss} 格式的目标时间，解析失败时返回 23:59:59。
+     *
+     * @param timeStr 目标时间字符串
+     * @return 解析后的 {@link LocalTime}
+     */
+    public static LocalTime parseTime(String timeStr) {
+        LocalTime time = PatternCache.time(timeStr);
+        return time == null ? END_OF_DAY : time;
+    }
+
+    private static int parseInt(String value, int def) {
         try {
-            targetTime = LocalTime.parse(timeStr);
-        } catch (Exception e) {
-            targetTime = LocalTime.parse("23:59:59");
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return def;
         }
-
-        LocalDate targetDate = LocalDate.now(zone).plusMonths(1);
-        int maxDay = targetDate.lengthOfMonth();
-        int safeDay = Math.min(dayOfMonth, maxDay);
-        LocalDateTime targetDateTime = LocalDateTime.of(targetDate, targetTime).withDayOfMonth(safeDay);
-        long diffMillis = Duration.between(now, targetDateTime).toMillis();
-        return unitConversion(diffMillis, unit);
     }
 
     /**
@@ -146,21 +251,61 @@ public class TimeUtils {
      * @return 转换后的时间值，如果单位不支持则返回 -1
      */
     public static long unitConversion(long millis, String unit) {
-        switch (unit.toUpperCase(Locale.ROOT)) {
-            case "MILLI":  return millis;
-            case "SECOND": return millis / 1000;
-            case "MINUTE": return millis / (1000 * 60);
-            case "HOUR":   return millis / (1000 * 60 * 60);
-            case "DAY":    return millis / (1000L * 60 * 60 * 24);
-            case "MONTH":  return millis / (1000L * 60 * 60 * 24 * 30);  // 按 30 天一个月估算
-            case "YEAR":   return millis / (1000L * 60 * 60 * 24 * 365); // 按 365 天一年估算
-            default:       return -1;
-        }
+        Unit parsed = Unit.parse(unit);
+        return parsed == null ? -1 : parsed.convert(millis);
     }
 
     public static String getTheWeek() {
-        SimpleDateFormat sdf = new SimpleDateFormat("EEEE", Locale.ENGLISH);
-        return sdf.format(new Date());
+        return LocalDate.now(CountdownEngine.zone()).format(WEEK_FORMATTER);
+    }
+
+    /**
+     * 支持的时间单位，MONTH 按 30 天、YEAR 按 365 天估算。
+     */
+    public enum Unit {
+        MILLI(1L),
+        SECOND(1000L),
+        MINUTE(1000L * 60),
+        HOUR(1000L * 60 * 60),
+        DAY(1000L * 60 * 60 * 24),
+        MONTH(1000L * 60 * 60 * 24 * 30),
+        YEAR(1000L * 60 * 60 * 24 * 365);
+
+        private final long millis;
+
+        Unit(long millis) {
+            this.millis = millis;
+        }
+
+        /** 该单位对应的毫秒数 */
+        public long toMillis() {
+            return millis;
+        }
+
+        /** 将毫秒数转换为当前单位 */
+        public long convert(long millis) {
+            return millis / this.millis;
+        }
+
+        /**
+         * 按名称（忽略大小写）解析时间单位。
+         *
+         * @param unit 单位字符串
+         * @return 对应的单位，不支持时返回 {@code null}
+         */
+        public static Unit parse(String unit) {
+            if (unit == null) return null;
+            switch (unit.toUpperCase(Locale.ROOT)) {
+                case "MILLI":  return MILLI;
+                case "SECOND": return SECOND;
+                case "MINUTE": return MINUTE;
+                case "HOUR":   return HOUR;
+                case "DAY":    return DAY;
+                case "MONTH":  return MONTH;
+                case "YEAR":   return YEAR;
+                default:       return null;
+            }
+        }
     }
 
 }
@@ -0,0 +1,89 @@
+package com.MaddyJace.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 倒计时占位符记忆窗口的测试。
+ * <p>
+ * 在时区 UTC 下以模拟时钟逐分钟推进五周，按 {@link PlaceholderMemo} 的规则沿用
+ * {@link TimeUtils#countdownSnapshot} 给出的结果直到过期（至少一个 tick），并与每一分钟直接计算的结果比较。
+ * 覆盖目标会在窗口内改变的情况：{@code diffDays} 跨过午夜、{@code diffWeeks} 到达目标星期几当天、
+ * {@code diffMonths} 跨过月初，以及以小时为单位、目标不是整点的情况。
+ * </p>
+ */
+public class CountdownTest {
+
+    /** 2024-01-04，星期四 */
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 4, 0, 0);
+    private static final long START_MILLIS = START.toInstant(ZoneOffset.UTC).toEpochMilli();
+    private static final long END_MILLIS = START_MILLIS + TimeUnit.DAYS.toMillis(35);
+    private static final long STEP_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @Before
+    public void useUtc() {
+        CountdownEngine.setZone(ZoneOffset.UTC);
+    }
+
+    @After
+    public void restoreZone() {
+        CountdownEngine.setZone(null);
+    }
+
+    /** 星期四 23:00 请求 {@code diffWeeks.day."18:00:00".5}（星期五）的结果最多保持到午夜 */
+    @Test
+    public void weeklyTargetExpiresAtMidnight() {
+        CountdownEngine.Countdown friday = CountdownEngine.weeks(LocalTime.of(18, 0), 5);
+        long thursday23 = START_MILLIS + TimeUnit.HOURS.toMillis(23);
+        long midnight = START_MILLIS + TimeUnit.DAYS.toMillis(1);
+        PlaceholderMemo.Snapshot late = TimeUtils.countdownSnapshot(TimeUtils.Unit.DAY, friday, thursday23);
+        assertEquals("0", late.value());
+        assertTrue("expires by midnight, got " + late.expiresAt(), late.expiresAt() <= midnight);
+        assertEquals(midnight, friday.validUntil(thursday23));
+    }
+
+    @Test
+    public void weeklyTargets() {
+        assertMemoMatches("diffWeeks.day.\"18:00:00\".5", TimeUtils.Unit.DAY, CountdownEngine.weeks(LocalTime.of(18, 0), 5));
+        assertMemoMatches("diffWeeks.hour.\"18:30:00\".5", TimeUtils.Unit.HOUR, CountdownEngine.weeks(LocalTime.of(18, 30), 5));
+    }
+
+    @Test
+    public void dailyTargets() {
+        assertMemoMatches("diffDays.day.\"18:00:00\".true", TimeUtils.Unit.DAY, CountdownEngine.days(LocalTime.of(18, 0), true));
+        assertMemoMatches("diffDays.hour.\"12:30:00\".false", TimeUtils.Unit.HOUR, CountdownEngine.days(LocalTime.of(12, 30), false));
+    }
+
+    @Test
+    public void monthlyTargets() {
+        assertMemoMatches("diffMonths.day.\"00:00:00\".15", TimeUtils.Unit.DAY, CountdownEngine.months(LocalTime.MIDNIGHT, 15));
+        assertMemoMatches("diffMonths.hour.\"06:45:00\".31", TimeUtils.Unit.HOUR, CountdownEngine.months(LocalTime.of(6, 45), 31));
+    }
+
+    /** 每隔一分钟读取一次，比较记忆结果与直接计算的结果 */
+    private static void assertMemoMatches(String name, TimeUtils.Unit unit, CountdownEngine.Countdown target) {
+        PlaceholderMemo.Snapshot snapshot = null;
+        long expiresAt = 0;
+        for (long now = START_MILLIS; now < END_MILLIS; now += STEP_MILLIS) {
+            if (snapshot == null || now >= expiresAt) {
+                snapshot = TimeUtils.countdownSnapshot(unit, target, now);
+                // 与 PlaceholderMemo 相同：至少保持一个 tick
+                expiresAt = Math.max(snapshot.expiresAt(), now + PlaceholderMemo.TICK_MILLIS);
+            }
+            String expected = String.valueOf(unit.convert(target.remainingMillis(now)));
+            assertEquals(name + " at " + LocalDateTime.ofEpochSecond(now / 1000, 0, ZoneOffset.UTC)
+                    .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME), expected, snapshot.value());
+        }
+    }
+
+}
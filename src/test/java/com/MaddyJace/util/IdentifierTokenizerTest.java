@@ -0,0 +1,102 @@
+package com.MaddyJace.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link IdentifierTokenizer} 与原先正则实现的随机对比。
+ * <p>
+ * 以固定种子随机生成由字母、点号、引号、反斜杠与花括号组成的参数，逐个比较两者的分割结果：
+ * </p>
+ * <ul>
+ *     <li>不含转义引号 {@code \"} 的输入，结果必须与正则版本完全相同；</li>
+ *     <li>含转义引号的输入按设计与正则版本不同：{@code \"} 不参与引号计数，并在输出中还原为 {@code "}。
+ *     期望结果由正则版本在把 {@code \"} 替换为普通字符后分割、再还原得到。</li>
+ * </ul>
+ * <p>
+ * 同一个分割器实例在所有输入间复用，同时检查 {@link IdentifierTokenizer#tokenEqualsIgnoreCase(int, String)}
+ * 与 {@link IdentifierTokenizer#token(int)} 一致。
+ * </p>
+ */
+public class IdentifierTokenizerTest {
+
+    private static final long SEED = 0x5EED_2024L;
+    private static final int ITERATIONS = 50_000;
+    private static final int MAX_LENGTH = 40;
+
+    /** 改用 {@link IdentifierTokenizer} 之前的分隔符正则 */
+    private static final Pattern LEGACY = Pattern.compile("\\.(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)");
+    private static final char[] ALPHABET = {'a', 'b', 'c', '.', '.', '"', '"', '\\', '{', '}', ' '};
+    /** 期望结果中代替转义引号的字符，不在 {@link #ALPHABET} 中 */
+    private static final char ESCAPED_QUOTE = '\u0001';
+
+    @Test
+    public void splitsLikeLegacyRegex() {
+        Random random = new Random(SEED);
+        IdentifierTokenizer tokenizer = new IdentifierTokenizer();
+        int escapedInputs = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            String input = randomInput(random);
+            boolean escaped = input.contains("\\\"");
+            if (escaped) escapedInputs++;
+            String context = "iteration " + i + ", input: " + input;
+            List<String> actual = tokenizer.reset(input).toList();
+            assertEquals(context, escaped ? escapedSplit(input) : legacySplit(input), actual);
+            assertEquals("thread-local split, " + context, actual, IdentifierTokenizer.split(input));
+            if (escaped) continue;
+            for (int t = 0; t < actual.size(); t++) {
+                assertTrue("tokenEqualsIgnoreCase(" + t + "), " + context,
+                        tokenizer.tokenEqualsIgnoreCase(t, actual.get(t).toUpperCase(Locale.ROOT)));
+            }
+        }
+        assertTrue("random inputs should include escaped quotes", escapedInputs > 0);
+    }
+
+    @Test
+    public void splitsQuotedArguments() {
+        assertEquals(Arrays.asList("authMe", "registrationDate", "yyyy.MM.dd"),
+                IdentifierTokenizer.split("authMe.registrationDate.\"yyyy.MM.dd\""));
+        assertEquals(Arrays.asList("a", "say \"hi\"", "b"),
+                IdentifierTokenizer.split("a.\"say \\\"hi\\\"\".b"));
+    }
+
+    private static String randomInput(Random random) {
+        int length = random.nextInt(MAX_LENGTH + 1);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+        }
+        return builder.toString();
+    }
+
+    /** 改用 {@link IdentifierTokenizer} 之前的 {@code splitByDotIgnoreQuotes} */
+    private static List<String> legacySplit(String input) {
+        List<String> parts = new ArrayList<>();
+        for (String part : LEGACY.split(input)) {
+            if (part.startsWith("\"") && part.endsWith("\"") && part.length() >= 2) {
+                part = part.substring(1, part.length() - 1);
+            }
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    /** 含转义引号时的期望结果：转义引号不参与引号计数与首尾引号的判断，输出时还原为引号 */
+    private static List<String> escapedSplit(String input) {
+        List<String> parts = new ArrayList<>();
+        for (String part : legacySplit(input.replace("\\\"", String.valueOf(ESCAPED_QUOTE)))) {
+            parts.add(part.replace(ESCAPED_QUOTE, '"'));
+        }
+        return parts;
+    }
+
+}
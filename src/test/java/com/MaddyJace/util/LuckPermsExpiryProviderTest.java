@@ -0,0 +1,229 @@
+package com.MaddyJace.util;
+
+import com.MaddyJace.util.Stubs.Answer;
+import net.luckperms.api.LuckPerms;
+import net.luckperms.api.event.EventBus;
+import net.luckperms.api.event.EventSubscription;
+import net.luckperms.api.event.node.NodeMutateEvent;
+import net.luckperms.api.model.PermissionHolder;
+import net.luckperms.api.model.group.Group;
+import net.luckperms.api.model.user.User;
+import net.luckperms.api.model.user.UserManager;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.node.types.InheritanceNode;
+import net.luckperms.api.node.types.PermissionNode;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static com.MaddyJace.util.Stubs.answers;
+import static com.MaddyJace.util.Stubs.stub;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link LuckPermsExpiryProvider} 的测试，LuckPerms API 由桩实现提供，不需要 LuckPerms 插件。
+ */
+public class LuckPermsExpiryProviderTest {
+
+    private final Instant now = Instant.now();
+    private final StubUser steve = new StubUser(UUID.randomUUID());
+    private final StubUser alex = new StubUser(UUID.randomUUID());
+    private StubLuckPerms luckPerms;
+    private LuckPermsExpiryProvider provider;
+    private Player stevePlayer;
+    private Player alexPlayer;
+
+    @Before
+    public void setUp() {
+        steve.nodes.add(permission("essentials.fly", now.plus(Duration.ofHours(2))));
+        steve.nodes.add(permission("essentials.fly", now.plus(Duration.ofHours(1))));
+        steve.nodes.add(group("vip", now.plus(Duration.ofDays(3))));
+        alex.nodes.add(group("vip", now.plus(Duration.ofDays(1))));
+        luckPerms = new StubLuckPerms(steve, alex);
+        stevePlayer = player(steve.uuid);
+        alexPlayer = player(alex.uuid);
+
+        provider = new LuckPermsExpiryProvider(luckPerms.api);
+        provider.subscribe(stub(Plugin.class, Collections.<String, Answer>emptyMap()));
+    }
+
+    @After
+    public void tearDown() {
+        provider.close();
+        DurationParser.setExpiryProvider(null);
+        Template.setResolver(null);
+    }
+
+    @Test
+    public void readsLatestExpiry() {
+        assertEquals(1, luckPerms.handlers.size());
+        // 取最晚的过期时间，大小写不敏感
+        assertAround(2 * 3600, provider.remainingSeconds(stevePlayer, "luckperms_expiry_time_Essentials.Fly"));
+        assertAround(3 * 86400, provider.remainingSeconds(stevePlayer, "luckperms_group_expiry_time_vip"));
+        assertEquals(-1, provider.remainingSeconds(stevePlayer, "luckperms_expiry_time_missing"));
+        assertEquals(ExpiryProvider.UNSUPPORTED, provider.remainingSeconds(stevePlayer, "luckperms_prefix"));
+        assertEquals(ExpiryProvider.UNSUPPORTED, provider.remainingSeconds(null, "luckperms_expiry_time_essentials.fly"));
+    }
+
+    /** 提供者可用时不解析嵌套占位符，不支持的占位符仍然交给 PlaceholderAPI */
+    @Test
+    public void durationParserSkipsPlaceholderParsing() {
+        AtomicInteger resolved = new AtomicInteger();
+        Template.setResolver((player, text) -> {
+            resolved.incrementAndGet();
+            return "1w";
+        });
+        DurationParser.setExpiryProvider(provider);
+        assertEquals("1", compile("luckPermsExpiryTime.\"{luckperms_expiry_time_essentials.fly}\".hour").apply(stevePlayer));
+        assertEquals("3", compile("luckPermsExpiryTime.\"{luckperms_group_expiry_time_vip}\"").apply(stevePlayer));
+        assertEquals(0, resolved.get());
+        assertEquals("7", compile("luckPermsExpiryTime.\"{other_expiry}\".day").apply(stevePlayer));
+        assertEquals(1, resolved.get());
+    }
+
+    /** 其它玩家的节点变更不影响缓存，本人的节点变更只重新读取本人，权限组的节点变更清空所有玩家的缓存 */
+    @Test
+    public void nodeMutateEventInvalidatesByTarget() {
+        DurationParser.setExpiryProvider(provider);
+        PlaceholderPlan days = compile("luckPermsExpiryTime.\"{luckperms_group_expiry_time_vip}\"");
+        assertEquals("3", days.apply(stevePlayer));
+        assertEquals("1", days.apply(alexPlayer));
+        int loads = luckPerms.lookups.get();
+
+        steve.nodes.add(group("vip", now.plus(Duration.ofDays(10))));
+        assertEquals("cached value is kept without an event", "3", days.apply(stevePlayer));
+        luckPerms.fire(alex.user);
+        assertEquals("another user's event keeps the cache", "3", days.apply(stevePlayer));
+        assertEquals(loads, luckPerms.lookups.get());
+        assertEquals("own event reloads the other user", "1", days.apply(alexPlayer));
+
+        loads = luckPerms.lookups.get();
+        luckPerms.fire(steve.user);
+        assertEquals("10", days.apply(stevePlayer));
+        days.apply(alexPlayer);
+        assertEquals("user event reloads only that user", loads + 1, luckPerms.lookups.get());
+
+        alex.nodes.add(group("vip", now.plus(Duration.ofDays(5))));
+        luckPerms.fire(luckPerms.group);
+        assertEquals("5", days.apply(alexPlayer));
+        days.apply(stevePlayer);
+        assertEquals("group event clears every user", loads + 3, luckPerms.lookups.get());
+    }
+
+    @Test
+    public void closeCancelsSubscription() {
+        provider.close();
+        assertTrue(luckPerms.closed.get());
+    }
+
+    private static PlaceholderPlan compile(String identifier) {
+        PlaceholderRegistry registry = new PlaceholderRegistry();
+        DurationParser.register(registry);
+        return registry.compile(ExpansionUtil.splitByDotIgnoreQuotes(identifier));
+    }
+
+    /** 读取与计算之间有时间差，允许 2 秒误差 */
+    private static void assertAround(long expected, long actual) {
+        assertTrue("expected ~" + expected + ", got " + actual, Math.abs(actual - expected) <= 2);
+    }
+
+    private static Player player(UUID uuid) {
+        return stub(Player.class, answers("getUniqueId", (Answer) args -> uuid));
+    }
+
+    private static Node permission(String permission, Instant expiry) {
+        return stub(PermissionNode.class, answers(
+                "getPermission", (Answer) args -> permission,
+                "getKey", (Answer) args -> permission,
+                "hasExpiry", (Answer) args -> true,
+                "getExpiry", (Answer) args -> expiry,
+                "getValue", (Answer) args -> true));
+    }
+
+    private static Node group(String group, Instant expiry) {
+        return stub(InheritanceNode.class, answers(
+                "getGroupName", (Answer) args -> group,
+                "getKey", (Answer) args -> "group." + group,
+                "hasExpiry", (Answer) args -> true,
+                "getExpiry", (Answer) args -> expiry,
+                "getValue", (Answer) args -> true));
+    }
+
+    /** 节点列表可以修改的玩家 */
+    private static final class StubUser {
+
+        private final UUID uuid;
+        private final List<Node> nodes = new CopyOnWriteArrayList<>();
+        private final User user;
+
+        private StubUser(UUID uuid) {
+            this.uuid = uuid;
+            this.user = stub(User.class, answers(
+                    "getUniqueId", (Answer) args -> uuid,
+                    "getNodes", (Answer) args -> new ArrayList<>(nodes)));
+        }
+    }
+
+    /** 记录用户读取次数并可以手动触发节点变更事件的 LuckPerms */
+    private static final class StubLuckPerms {
+
+        private final LuckPerms api;
+        private final Group group = stub(Group.class, answers("getName", (Answer) args -> "vip"));
+        private final List<Consumer<NodeMutateEvent>> handlers = new CopyOnWriteArrayList<>();
+        private final AtomicInteger lookups = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        @SuppressWarnings("unchecked")
+        private StubLuckPerms(StubUser... users) {
+            Map<UUID, User> byId = new HashMap<>();
+            for (StubUser user : users) {
+                byId.put(user.uuid, user.user);
+            }
+            UserManager userManager = stub(UserManager.class, answers(
+                    "getUser", (Answer) args -> {
+                        lookups.incrementAndGet();
+                        return byId.get((UUID) args[0]);
+                    }));
+            EventSubscription<NodeMutateEvent> subscription = stub(EventSubscription.class,
+                    answers("close", (Answer) args -> {
+                        closed.set(true);
+                        return null;
+                    }));
+            EventBus eventBus = stub(EventBus.class, answers(
+                    "subscribe", (Answer) args -> {
+                        handlers.add((Consumer<NodeMutateEvent>) args[2]);
+                        return subscription;
+                    }));
+            this.api = stub(LuckPerms.class, answers(
+                    "getUserManager", (Answer) args -> userManager,
+                    "getEventBus", (Answer) args -> eventBus));
+        }
+
+        private void fire(PermissionHolder target) {
+            NodeMutateEvent event = stub(NodeMutateEvent.class, answers(
+                    "getTarget", (Answer) args -> target,
+                    "isUser", (Answer) args -> target instanceof User,
+                    "isGroup", (Answer) args -> target instanceof Group));
+            for (Consumer<NodeMutateEvent> handler : handlers) {
+                handler.accept(event);
+            }
+        }
+    }
+
+}
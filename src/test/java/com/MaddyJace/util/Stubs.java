@@ -0,0 +1,79 @@
+package com.MaddyJace.util;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 测试与基准测试共用的接口桩实现。
+ * <p>
+ * 通过 {@link Proxy} 实现任意接口：按方法名查找 {@link Answer}，未列出的方法返回默认值
+ * （基本类型为 0 或 false，{@link Optional} 为空，{@link List} 与 {@link Collection} 为空列表，其它为 {@code null}）。
+ * </p>
+ */
+final class Stubs {
+
+    private Stubs() {}
+
+    @FunctionalInterface
+    interface Answer {
+        Object answer(Object[] args);
+    }
+
+    /**
+     * 按 {@code 方法名, Answer, 方法名, Answer...} 的顺序创建应答表。
+     *
+     * @param pairs 方法名与应答交替排列
+     * @return 方法名 -> 应答
+     */
+    static Map<String, Answer> answers(Object... pairs) {
+        Map<String, Answer> answers = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            answers.put((String) pairs[i], (Answer) pairs[i + 1]);
+        }
+        return answers;
+    }
+
+    /**
+     * 创建接口的桩实现，{@link Object} 的 {@code equals}、{@code hashCode} 与 {@code toString} 按对象身份实现；
+     * 接口自己声明的同名方法（例如 {@code ItemFactory#equals(ItemMeta, ItemMeta)}）仍然按应答表处理。
+     *
+     * @param type    接口类型
+     * @param answers 方法名 -> 应答
+     * @return 桩实现
+     */
+    static <T> T stub(Class<T> type, Map<String, Answer> answers) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals": return self == args[0];
+                    case "hashCode": return System.identityHashCode(self);
+                    default: return type.getSimpleName() + "Stub";
+                }
+            }
+            Answer answer = answers.get(method.getName());
+            if (answer != null) return answer.answer(args);
+            return defaultValue(method.getReturnType());
+        });
+        return type.cast(proxy);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0D;
+        if (type == float.class) return 0F;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        if (type == char.class) return '\0';
+        if (type == Optional.class) return Optional.empty();
+        if (type == List.class || type == Collection.class) return Collections.emptyList();
+        return null;
+    }
+
+}